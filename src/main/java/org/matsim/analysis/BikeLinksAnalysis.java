@@ -18,6 +18,8 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.application.MATSimAppCommand;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.dashboard.LaneRepurposingDashboard;
@@ -38,6 +40,11 @@ import static org.matsim.application.ApplicationUtils.globFile;
 	"This class also creates a dashboard to visualize the data.")
 public class BikeLinksAnalysis implements MATSimAppCommand, LinkEnterEventHandler, LinkLeaveEventHandler, VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler {
 
+	private static final byte UNKNOWN = 0;
+	private static final byte BIKE = 1;
+	private static final byte CAR = 2;
+	private static final byte OTHER = 3;
+
 	Logger log = LogManager.getLogger(BikeLinksAnalysis.class);
 
 	@CommandLine.Option(names = "--dir", description = "Path to run directory.")
@@ -46,12 +53,18 @@ public class BikeLinksAnalysis implements MATSimAppCommand, LinkEnterEventHandle
 	private String output;
 
 	private Map<Id<Vehicle>, List<Id<Link>>> carsOnBikeLinks = new HashMap<>();
-//	this needs to be a list instead of a map, because we need it ordered
-	private Map<Id<Vehicle>, List<Map.Entry<Id<Link>, Double>>> bikeTravelTimes = new HashMap<>();
-	private Map<Id<Vehicle>, Map<Id<Link>, Double>> linkLeaveTimes = new HashMap<>();
 	List<BikeData> bikeData = new ArrayList<>();
 	private Network network;
 
+//	link attributes by link index, so that no network lookup and id string checks are needed per event
+	private double[] linkLength;
+	private boolean[] bikeOnlyLink;
+	private boolean[] carRestrictedBikeLink;
+
+//	vehicle class and current bike trip by vehicle index. Each vehicle is only classified once.
+	private byte[] vehicleClass = new byte[0];
+	private BikeTrip[] trips = new BikeTrip[0];
+
 	public static void main(String[] args) {
 		new BikeLinksAnalysis().execute(args);
 	}
@@ -59,16 +72,19 @@ public class BikeLinksAnalysis implements MATSimAppCommand, LinkEnterEventHandle
 	@Override
 	public Integer call() throws Exception {
 
-		EventsManager manager = EventsUtils.createEventsManager();
-		manager.addHandler(this);
-
-		manager.initProcessing();
-
 		String eventsPath = globFile(runDir, "*output_events.*").toString();
 		String networkPath = globFile(runDir, "*output_network.*").toString();
 
 		this.network = NetworkUtils.readNetwork(networkPath);
+		prepareLinks();
+
+//		events are handled in a separate thread, so that parsing and analysis run in parallel
+		Config config = ConfigUtils.createConfig();
+		config.eventsManager().setNumberOfThreads(1);
+		EventsManager manager = EventsUtils.createEventsManager(config);
+		manager.addHandler(this);
 
+		manager.initProcessing();
 		EventsUtils.readEvents(manager, eventsPath);
 
 		manager.finishProcessing();
@@ -198,16 +214,71 @@ public class BikeLinksAnalysis implements MATSimAppCommand, LinkEnterEventHandle
 		}
 	}
 
+	private void prepareLinks() {
+		int n = Id.getNumberOfIds(Link.class);
+		linkLength = new double[n];
+		bikeOnlyLink = new boolean[n];
+		carRestrictedBikeLink = new boolean[n];
+
+		for (Link link : network.getLinks().values()) {
+			int idx = link.getId().index();
+			String id = link.getId().toString();
+
+			linkLength[idx] = link.getLength();
+			bikeOnlyLink[idx] = id.contains("bike_");
+			carRestrictedBikeLink[idx] = id.contains(TransportMode.bike) && link.getAllowedModes().contains(TransportMode.bike)
+				&& !link.getAllowedModes().contains(TransportMode.car);
+		}
+	}
+
+	private byte getVehicleClass(Id<Vehicle> vehId) {
+		int idx = vehId.index();
+		if (idx >= vehicleClass.length) {
+			vehicleClass = Arrays.copyOf(vehicleClass, Math.max(idx + 1, Id.getNumberOfIds(Vehicle.class)));
+		}
+
+		if (vehicleClass[idx] == UNKNOWN) {
+//			vehicles are classified by the mode contained in their id, so that the vehicles file is not needed
+			String id = vehId.toString();
+
+			if (id.contains(TransportMode.bike)) {
+				vehicleClass[idx] = BIKE;
+			} else if (id.contains(TransportMode.car)) {
+				vehicleClass[idx] = CAR;
+			} else {
+				vehicleClass[idx] = OTHER;
+			}
+		}
+
+		return vehicleClass[idx];
+	}
+
+	private BikeTrip getTrip(Id<Vehicle> vehId, boolean create) {
+		int idx = vehId.index();
+		if (idx >= trips.length) {
+			if (!create) {
+				return null;
+			}
+			trips = Arrays.copyOf(trips, Math.max(idx + 1, Id.getNumberOfIds(Vehicle.class)));
+		}
+
+		if (trips[idx] == null && create) {
+			trips[idx] = new BikeTrip();
+		}
+		return trips[idx];
+	}
+
 	@Override
 	public void handleEvent(LinkLeaveEvent event) {
 //		this event is only needed for getting travel times of agents who travel only one link
-		Id<Vehicle> id = event.getVehicleId();
-
-		if (id.toString().contains(TransportMode.bike)) {
-			linkLeaveTimes.putIfAbsent(id, new HashMap<>());
-			linkLeaveTimes.get(id).put(event.getLinkId(), event.getTime());
+		if (getVehicleClass(event.getVehicleId()) != BIKE) {
+			return;
 		}
 
+		BikeTrip trip = getTrip(event.getVehicleId(), false);
+		if (trip != null && trip.firstOnBikeOnlyLink && event.getLinkId().index() == trip.firstLink) {
+			trip.firstLeaveTime = event.getTime();
+		}
 	}
 
 	@Override
@@ -222,62 +293,43 @@ public class BikeLinksAnalysis implements MATSimAppCommand, LinkEnterEventHandle
 
 	@Override
 	public void handleEvent(VehicleLeavesTrafficEvent event) {
-		if (event.getVehicleId().toString().contains(TransportMode.bike) && bikeTravelTimes.containsKey(event.getVehicleId())) {
-//			calc stats and put into data list
-			Id<Vehicle> vehId = event.getVehicleId();
-
-			List<Map.Entry<Id<Link>, Double>> bikeTravels = bikeTravelTimes.get(vehId);
-
-
-			double travelTime = 0;
-			double travelDist = 0;
-
-			List<Map.Entry<Id<Link>, Double>> filtered = bikeTravels.stream().filter(en -> en.getKey().toString().contains("bike_")).toList();
-
-			if (filtered.isEmpty()) {
-//					do nothing
-			}
+		Id<Vehicle> vehId = event.getVehicleId();
+		if (getVehicleClass(vehId) != BIKE) {
+			return;
+		}
 
-			for (Map.Entry<Id<Link>, Double> entry : filtered) {
-				if (bikeTravels.indexOf(entry) != 0) {
-					travelTime += entry.getValue() - bikeTravels.get(bikeTravels.indexOf(entry) - 1).getValue();
-					travelDist += network.getLinks().get(entry.getKey()).getLength();
-				} else {
-					travelTime += linkLeaveTimes.get(vehId).get(filtered.get(0).getKey()) - filtered.get(0).getValue();
-					travelDist += network.getLinks().get(filtered.get(0).getKey()).getLength();
-				}
-			}
+		BikeTrip trip = getTrip(vehId, false);
+		if (trip == null || trip.entries == 0) {
+			return;
+		}
 
-			double avgSpeed;
+//		calc stats and put into data list
+		double travelTime = trip.travelTime;
+		if (trip.firstOnBikeOnlyLink && !Double.isNaN(trip.firstLeaveTime)) {
+			travelTime += trip.firstLeaveTime - trip.firstTime;
+		}
 
-			if (travelTime > 0) {
-				avgSpeed = travelDist /travelTime;
-			} else {
-				avgSpeed = 0;
-			}
+		double avgSpeed;
 
-			if (travelTime < 0) {
-				log.error("Travel time {} for vehicle {} is <= 0, this should not happen.", travelTime, vehId);
-				throw new IllegalArgumentException();
-			} else if (travelTime > 0) {
-				bikeData.add(getAllStats(vehId, travelTime, travelDist, avgSpeed, bikeTravels));
-			}
+		if (travelTime > 0) {
+			avgSpeed = trip.travelDist / travelTime;
+		} else {
+			avgSpeed = 0;
+		}
 
-			bikeTravelTimes.remove(event.getVehicleId());
-			linkLeaveTimes.remove(event.getVehicleId());
+		if (travelTime < 0) {
+			log.error("Travel time {} for vehicle {} is <= 0, this should not happen.", travelTime, vehId);
+			throw new IllegalArgumentException();
+		} else if (travelTime > 0) {
+			bikeData.add(getAllStats(vehId, travelTime, trip.travelDist, avgSpeed, trip));
 		}
-	}
 
-	private BikeData getAllStats(Id<Vehicle> vehId, double travelTime, double travelDist, double avgSpeed, List<Map.Entry<Id<Link>, Double>> bikeTravels) {
-		double totalTravelTime = 0;
-		double totalTravelDist = 0;
+		trips[vehId.index()] = null;
+	}
 
-		for (Map.Entry<Id<Link>, Double> entry : bikeTravels) {
-			if (bikeTravels.indexOf(entry) != 0) {
-				totalTravelTime += entry.getValue() - bikeTravels.get(bikeTravels.indexOf(entry) - 1).getValue();
-				totalTravelDist += network.getLinks().get(entry.getKey()).getLength();
-			}
-		}
+	private BikeData getAllStats(Id<Vehicle> vehId, double travelTime, double travelDist, double avgSpeed, BikeTrip trip) {
+		double totalTravelTime = trip.totalTravelTime;
+		double totalTravelDist = trip.totalTravelDist;
 
 		double totalAvgSpeed = 0;
 		double shareTravelTime = 0;
@@ -298,20 +350,54 @@ public class BikeLinksAnalysis implements MATSimAppCommand, LinkEnterEventHandle
 
 	private void registerVehicle(Id<Vehicle> vehId, Id<Link> linkId, double time) {
 
-		if (vehId.toString().contains(TransportMode.bike)) {
-			bikeTravelTimes.putIfAbsent(vehId, new ArrayList<>());
-			bikeTravelTimes.get(vehId).add(new AbstractMap.SimpleEntry<>(linkId, time));
-		}
+		byte type = getVehicleClass(vehId);
+		int link = linkId.index();
 
-		if (linkId.toString().contains(TransportMode.bike)) {
-			Link link = this.network.getLinks().get(linkId);
+		if (type == BIKE) {
+			BikeTrip trip = getTrip(vehId, true);
 
-			if (link.getAllowedModes().contains(TransportMode.bike) && !link.getAllowedModes().contains(TransportMode.car)
-				&& vehId.toString().contains(TransportMode.car)) {
-				carsOnBikeLinks.putIfAbsent(vehId, new ArrayList<>());
-				carsOnBikeLinks.get(vehId).add(linkId);
+			if (trip.entries == 0) {
+				trip.firstLink = link;
+				trip.firstTime = time;
+				trip.firstOnBikeOnlyLink = bikeOnlyLink[link];
+				if (trip.firstOnBikeOnlyLink) {
+					trip.travelDist += linkLength[link];
+				}
+			} else {
+//				time since entering the previous link
+				double diff = time - trip.lastTime;
+				trip.totalTravelTime += diff;
+				trip.totalTravelDist += linkLength[link];
+
+				if (bikeOnlyLink[link]) {
+					trip.travelTime += diff;
+					trip.travelDist += linkLength[link];
+				}
 			}
+
+			trip.lastTime = time;
+			trip.entries++;
 		}
+
+		if (type == CAR && carRestrictedBikeLink[link]) {
+			carsOnBikeLinks.computeIfAbsent(vehId, k -> new ArrayList<>()).add(linkId);
+		}
+	}
+
+	/**
+	 * Accumulated values of the current trip of a bike.
+	 */
+	private static final class BikeTrip {
+		private int entries;
+		private int firstLink;
+		private double firstTime;
+		private double firstLeaveTime = Double.NaN;
+		private boolean firstOnBikeOnlyLink;
+		private double lastTime;
+		private double travelTime;
+		private double travelDist;
+		private double totalTravelTime;
+		private double totalTravelDist;
 	}
 
 	private static final class BikeData {
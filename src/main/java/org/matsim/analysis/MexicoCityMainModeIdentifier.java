@@ -1,57 +1,59 @@
 package org.matsim.analysis;
 
 import com.google.inject.Inject;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.router.AnalysisMainModeIdentifier;
 import org.matsim.prepare.MexicoCityUtils;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Hierarchical main mode identifier.
+ * The rank of each mode within the hierarchy is looked up in a precomputed table, so that no objects are allocated per trip.
  */
 public final class MexicoCityMainModeIdentifier implements AnalysisMainModeIdentifier {
-	private final List<String> modeHierarchy = new ArrayList<>();
+
+	/**
+	 * Modes in ascending order of their priority.
+	 */
+	private static final String[] MODE_HIERARCHY = {
+		TransportMode.transit_walk,
+		TransportMode.walk,
+		TransportMode.bike,
+		TransportMode.car,
+		TransportMode.pt,
+		MexicoCityUtils.TAXIBUS
+	};
+
+	private final Object2IntMap<String> modeRanks = new Object2IntOpenHashMap<>();
 
 	@Inject
 	public MexicoCityMainModeIdentifier() {
-		this.modeHierarchy.add(TransportMode.transit_walk);
-		this.modeHierarchy.add(TransportMode.walk);
-		this.modeHierarchy.add(TransportMode.bike);
-		this.modeHierarchy.add(TransportMode.car);
+		for (int i = 0; i < MODE_HIERARCHY.length; i++) {
+			modeRanks.put(MODE_HIERARCHY[i], i);
+		}
 
-		this.modeHierarchy.add(TransportMode.pt);
-		this.modeHierarchy.add(MexicoCityUtils.TAXIBUS);
+		// transit walk is counted as walk, non network walk is only a helper mode for access, egress and pt transfers
+		modeRanks.put(TransportMode.transit_walk, modeRanks.getInt(TransportMode.walk));
+		modeRanks.put(TransportMode.non_network_walk, -1);
+		modeRanks.defaultReturnValue(Integer.MIN_VALUE);
 	}
 
 	@Override
 	public String identifyMainMode(List<? extends PlanElement> planElements) {
 		int mainModeIndex = -1;
-		List<String> modesFound = new ArrayList<>();
-		for (PlanElement pe : planElements) {
-			int index;
-			String mode;
-			if (pe instanceof Leg leg) {
-				leg = (Leg) pe;
-				mode = leg.getMode();
-			} else {
+		for (int i = 0; i < planElements.size(); i++) {
+			if (!(planElements.get(i) instanceof Leg leg)) {
 				continue;
 			}
-			if (mode.equals(TransportMode.non_network_walk)) {
-				// skip, this is only a helper mode for access, egress and pt transfers
-				continue;
-			}
-			if (mode.equals(TransportMode.transit_walk)) {
-				mode = TransportMode.walk;
-			}
 
-			modesFound.add(mode);
-			index = modeHierarchy.indexOf(mode);
-			if (index < 0) {
-				throw new IllegalArgumentException("unknown mode=" + mode);
+			int index = modeRanks.getInt(leg.getMode());
+			if (index == Integer.MIN_VALUE) {
+				throw new IllegalArgumentException("unknown mode=" + leg.getMode());
 			}
 			if (index > mainModeIndex) {
 				mainModeIndex = index;
@@ -61,6 +63,6 @@ public final class MexicoCityMainModeIdentifier implements AnalysisMainModeIdent
 			throw new IllegalStateException("no main mode found for trip " + planElements);
 		}
 
-		return modeHierarchy.get(mainModeIndex);
+		return MODE_HIERARCHY[mainModeIndex];
 	}
 }
@@ -0,0 +1,62 @@
+package org.matsim.analysis.roadpricing;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import tech.tablesaw.api.Table;
+import tech.tablesaw.selection.Selection;
+
+import java.util.stream.IntStream;
+
+/**
+ * Selects table rows by whether coordinate columns lie within an area.
+ * The area is prepared once, coordinates outside its envelope are rejected without a geometry test, and rows are evaluated in parallel.
+ */
+final class AreaFilter {
+
+	private final PreparedGeometry geometry;
+	private final Envelope envelope;
+	private final GeometryFactory f = new GeometryFactory();
+
+	AreaFilter(Geometry geometry) {
+		this.geometry = PreparedGeometryFactory.prepare(geometry);
+		this.envelope = geometry.getEnvelopeInternal();
+	}
+
+	private boolean contains(double x, double y) {
+		return envelope.contains(x, y) && geometry.contains(f.createPoint(new Coordinate(x, y)));
+	}
+
+	/**
+	 * Select all rows with the coordinate within the area.
+	 */
+	Selection within(Table table, String xColumn, String yColumn) {
+		double[] x = table.numberColumn(xColumn).asDoubleArray();
+		double[] y = table.numberColumn(yColumn).asDoubleArray();
+
+		return Selection.with(IntStream.range(0, table.rowCount())
+			.parallel()
+			.filter(i -> contains(x[i], y[i]))
+			.toArray());
+	}
+
+	/**
+	 * Select all rows where the start and end coordinates are within the area.
+	 *
+	 * @param both true if both coordinates need to be within the area, otherwise one of them is sufficient
+	 */
+	Selection within(Table table, String startX, String startY, String endX, String endY, boolean both) {
+		double[] sx = table.numberColumn(startX).asDoubleArray();
+		double[] sy = table.numberColumn(startY).asDoubleArray();
+		double[] ex = table.numberColumn(endX).asDoubleArray();
+		double[] ey = table.numberColumn(endY).asDoubleArray();
+
+		return Selection.with(IntStream.range(0, table.rowCount())
+			.parallel()
+			.filter(i -> both ? contains(sx[i], sy[i]) && contains(ex[i], ey[i]) : contains(sx[i], sy[i]) || contains(ex[i], ey[i]))
+			.toArray());
+	}
+}
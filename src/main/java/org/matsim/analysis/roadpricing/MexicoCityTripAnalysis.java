@@ -10,10 +10,6 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.geom.Point;
 import org.matsim.application.CommandSpec;
 import org.matsim.application.MATSimAppCommand;
 import org.matsim.application.options.CsvOptions;
@@ -115,20 +111,7 @@ public class MexicoCityTripAnalysis implements MATSimAppCommand {
 
 		// Home filter by standard attribute
 		if (shp.isDefined() && filter == LocationFilter.HOME) {
-			Geometry geometry = shp.getGeometry();
-			GeometryFactory f = new GeometryFactory();
-
-			IntList idx = new IntArrayList();
-
-			for (int i = 0; i < persons.rowCount(); i++) {
-				Row row = persons.row(i);
-				Point p = f.createPoint(new Coordinate(row.getDouble("home_x"), row.getDouble("home_y")));
-				if (geometry.contains(p)) {
-					idx.add(i);
-				}
-			}
-
-			persons = persons.where(Selection.with(idx.toIntArray()));
+			persons = persons.where(new AreaFilter(shp.getGeometry()).within(persons, "home_x", "home_y"));
 		}
 
 		log.info("Filtered {} out of {} persons", persons.rowCount(), total);
@@ -147,40 +130,12 @@ public class MexicoCityTripAnalysis implements MATSimAppCommand {
 			.sample(false)
 			.separator(CsvOptions.detectDelimiter(tripsPath)).build());
 
-		// Trip filter with start AND end
-		if (shp.isDefined() && filter == LocationFilter.TRIP_START_AND_END) {
-			Geometry geometry = shp.getGeometry();
-			GeometryFactory f = new GeometryFactory();
-			IntList idx = new IntArrayList();
-
-			for (int i = 0; i < trips.rowCount(); i++) {
-				Row row = trips.row(i);
-				Point start = f.createPoint(new Coordinate(row.getDouble("start_x"), row.getDouble("start_y")));
-				Point end = f.createPoint(new Coordinate(row.getDouble("end_x"), row.getDouble("end_y")));
-				if (geometry.contains(start) && geometry.contains(end)) {
-					idx.add(i);
-				}
-			}
-
-			trips = trips.where(Selection.with(idx.toIntArray()));
-//		trip filter with start OR end
-		} else if (shp.isDefined() && filter == LocationFilter.TRIP_START_OR_END) {
-			Geometry geometry = shp.getGeometry();
-			GeometryFactory f = new GeometryFactory();
-			IntList idx = new IntArrayList();
-
-			for (int i = 0; i < trips.rowCount(); i++) {
-				Row row = trips.row(i);
-				Point start = f.createPoint(new Coordinate(row.getDouble("start_x"), row.getDouble("start_y")));
-				Point end = f.createPoint(new Coordinate(row.getDouble("end_x"), row.getDouble("end_y")));
-				if (geometry.contains(start) || geometry.contains(end)) {
-					idx.add(i);
-				}
-			}
-
-			log.info(trips.rowCount());
-			trips = trips.where(Selection.with(idx.toIntArray()));
-			log.info(trips.rowCount());
+		// Trip filter with start AND end, or start OR end
+		if (shp.isDefined() && (filter == LocationFilter.TRIP_START_AND_END || filter == LocationFilter.TRIP_START_OR_END)) {
+			int before = trips.rowCount();
+			trips = trips.where(new AreaFilter(shp.getGeometry())
+				.within(trips, "start_x", "start_y", "end_x", "end_y", filter == LocationFilter.TRIP_START_AND_END));
+			log.info("Filtered {} out of {} trips", trips.rowCount(), before);
 		}
 
 		// Use longest_distance_mode where main_mode is not present
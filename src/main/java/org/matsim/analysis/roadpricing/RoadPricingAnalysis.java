@@ -96,38 +96,30 @@ public class RoadPricingAnalysis implements MATSimAppCommand {
 			.separator(CsvOptions.detectDelimiter(personMoneyPath)).build());
 
 //		filter person money events for toll events only
+		TextColumn purpose = moneyEvents.textColumn("purpose");
 		IntList idx = new IntArrayList();
 		for (int i = 0; i < moneyEvents.rowCount(); i++) {
-			Row row = moneyEvents.row(i);
-			if (row.getString("purpose").toLowerCase().contains("toll")) {
+			if (purpose.get(i).toLowerCase().contains("toll")) {
 				idx.add(i);
 			}
 		}
 		Table filtered = moneyEvents.where(Selection.with(idx.toIntArray()));
 
-		//		find the tolled trips for each money event. then filter for tolled car trips only
-		TextColumn personMoneyEventsPersons = filtered.textColumn(person);
-		IntList idy = new IntArrayList();
-
-		for (int i = 0; i < trips.rowCount(); i++) {
-			Row row = trips.row(i);
-
-			String personId = row.getText(person);
-
-			Table tollPersonTable = filtered.where(personMoneyEventsPersons.eval(p -> p.contains(personId)));
-
-//			if person not among toll payers, skip
-			if (tollPersonTable.rowCount() != 1) {
-				continue;
-			}
+//		find the tolled trips for each money event. then filter for tolled car trips only
+//		toll payments are indexed per person and sorted by time, so each trip is matched by a binary search instead of filtering the whole table
+		TollEventIndex tollEvents = TollEventIndex.of(filtered.textColumn(person), filtered.doubleColumn("time"));
 
-			double tripStart = parseTimeManually(row.getString("dep_time"));
-			double travelTime = parseTimeManually(row.getString("trav_time"));
-			double waitingTime = parseTimeManually(row.getString("wait_time"));
+		TextColumn tripPersons = trips.textColumn(person);
+		double[] depTimes = parseTimes(trips.stringColumn("dep_time"));
+		double[] travTimes = parseTimes(trips.stringColumn("trav_time"));
+		double[] waitTimes = parseTimes(trips.stringColumn("wait_time"));
 
-			double tollPaymentTime = tollPersonTable.doubleColumn("time").get(0);
+		IntList idy = new IntArrayList();
+		for (int i = 0; i < trips.rowCount(); i++) {
+			double tripStart = depTimes[i];
+			double tripEnd = tripStart + travTimes[i] + waitTimes[i];
 
-			if (tollPaymentTime >= tripStart && tollPaymentTime <= tripStart + travelTime + waitingTime) {
+			if (tollEvents.hasPaymentWithin(tripPersons.get(i), tripStart, tripEnd)) {
 				idy.add(i);
 			}
 		}
@@ -323,15 +315,30 @@ public class RoadPricingAnalysis implements MATSimAppCommand {
 		}
 	}
 
-	private double parseTimeManually(String time) {
-		String[] parts = time.split(":");
-		if (parts.length != 3) {
+	/**
+	 * Parse a whole column of hh:mm:ss times to seconds.
+	 */
+	static double[] parseTimes(StringColumn column) {
+		double[] times = new double[column.size()];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = parseTimeManually(column.get(i));
+		}
+		return times;
+	}
+
+	/**
+	 * Parse a hh:mm:ss time to seconds. Hours can exceed 24 and have more than two digits.
+	 */
+	static double parseTimeManually(String time) {
+		int first = time.indexOf(':');
+		int second = first < 0 ? -1 : time.indexOf(':', first + 1);
+		if (first < 0 || second < 0 || time.indexOf(':', second + 1) >= 0) {
 			throw new IllegalArgumentException("Invalid time format: " + time);
 		}
 
-		double hours = Double.parseDouble(parts[0]);
-		double minutes = Double.parseDouble(parts[1]);
-		double seconds = Double.parseDouble(parts[2]);
+		double hours = Double.parseDouble(time.substring(0, first));
+		double minutes = Double.parseDouble(time.substring(first + 1, second));
+		double seconds = Double.parseDouble(time.substring(second + 1));
 
 		// Validate minutes and seconds
 		if (minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
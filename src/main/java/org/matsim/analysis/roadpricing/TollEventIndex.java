@@ -0,0 +1,57 @@
+package org.matsim.analysis.roadpricing;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.TextColumn;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Times of toll payments grouped per person. The times of each person are sorted, such that payments within a time window can be found by binary search.
+ */
+final class TollEventIndex {
+
+	private final Map<String, double[]> times;
+
+	private TollEventIndex(Map<String, double[]> times) {
+		this.times = times;
+	}
+
+	/**
+	 * Build the index from the person and time columns of money events.
+	 */
+	static TollEventIndex of(TextColumn persons, DoubleColumn time) {
+		Map<String, DoubleArrayList> grouped = new HashMap<>();
+		for (int i = 0; i < persons.size(); i++) {
+			grouped.computeIfAbsent(persons.get(i), k -> new DoubleArrayList()).add(time.getDouble(i));
+		}
+
+		Map<String, double[]> times = new HashMap<>(grouped.size());
+		for (Map.Entry<String, DoubleArrayList> e : grouped.entrySet()) {
+			double[] t = e.getValue().toDoubleArray();
+			Arrays.sort(t);
+			times.put(e.getKey(), t);
+		}
+
+		return new TollEventIndex(times);
+	}
+
+	/**
+	 * Check whether the person paid a toll in the time window [from, to].
+	 */
+	boolean hasPaymentWithin(String person, double from, double to) {
+		double[] t = times.get(person);
+		if (t == null) {
+			return false;
+		}
+
+		int idx = Arrays.binarySearch(t, from);
+		if (idx < 0) {
+			idx = -idx - 1;
+		}
+
+		return idx < t.length && t[idx] <= to;
+	}
+}
@@ -18,6 +18,7 @@ import org.matsim.application.options.CrsOptions;
 import org.matsim.application.prepare.counts.NetworkIndex;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.geotools.MGC;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.counts.Count;
@@ -27,9 +28,11 @@ import org.opengis.referencing.operation.TransformException;
 import picocli.CommandLine;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -131,7 +134,8 @@ public class CreateCountsFromDatosVialesPortal implements MATSimAppCommand {
 			Coord coord = toMatch.coord();
 			return MGC.coord2Point(coord);
 		});
-		//Add link direction filter
+		//Add link direction filter, there are only few distinct directions, so each pattern is compiled once
+		Map<String, Pattern> patterns = new ConcurrentHashMap<>();
 		index.addLinkFilter((link, station) -> {
 			String direction = station.direction().get();
 
@@ -140,7 +144,7 @@ public class CreateCountsFromDatosVialesPortal implements MATSimAppCommand {
 
 			String linkDir = getDirection(to, from);
 
-			Pattern pattern = Pattern.compile(direction, Pattern.CASE_INSENSITIVE);
+			Pattern pattern = patterns.computeIfAbsent(direction, d -> Pattern.compile(d, Pattern.CASE_INSENSITIVE));
 
 			return pattern.matcher(linkDir).find();
 		});
@@ -206,30 +210,38 @@ public class CreateCountsFromDatosVialesPortal implements MATSimAppCommand {
 		CSVFormat.Builder builder = CSVFormat.Builder.create(CSVFormat.DEFAULT);
 		builder.setQuote(null);
 		builder.setHeader();
-
-		for (Path path : paths) {
-			try (CSVParser parser = new CSVParser(IOUtils.getBufferedReader(path.toUri().toURL()), builder.build())) {
-//				every file consists of only 1 record -> 1 station = 1 file
-
-				CSVRecord rec = parser.getRecords().get(0);
-
-				Coord coord = crs.getTransformation().transform(new Coord(Double.parseDouble(rec.get("LONG")), Double.parseDouble(rec.get("LAT"))));
-
-				String id = rec.get(1) + "_" + coord.getX() + "_" + coord.getY() + "_" + rec.get("SC") + "_" + Double.parseDouble(rec.get("KM"));
-				long volume = Long.parseLong(rec.get(24).replace("\"", ""));
-				double carFactor = Double.parseDouble(rec.get("AUTOS")) / 100;
-
-				if (!stations.isEmpty() && stations.containsKey(id)) {
-					throw new IllegalArgumentException("Station id {} is not unique, please check data." + id);
+		CSVFormat format = builder.build();
+
+//		the transformation is not necessarily thread-safe
+		ThreadLocal<CoordinateTransformation> ct = ThreadLocal.withInitial(crs::getTransformation);
+
+//		files are parsed concurrently, but added in the original order
+		List<Station> parsed;
+		try {
+			parsed = paths.parallelStream().map(path -> {
+				try {
+					return readStation(path, format, ct.get());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
 				}
+			}).toList();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
 
-				stations.put(id, new Station(id, coord,
-					Integer.parseInt(rec.get("SC")), Double.parseDouble(rec.get("KM")), rec.get(1), getVolumeData(volume, carFactor)));
-			} catch (IOException e) {
-				throw new IOException("Error processing file {}: " + path);
+		for (Station station : parsed) {
+			if (stations.containsKey(station.id)) {
+				throw new IllegalArgumentException("Station id {} is not unique, please check data." + station.id);
 			}
+
+			stations.put(station.id, station);
 		}
 
+//		stations of each road sorted by km, to find the neighbouring stations without searching all stations
+		Map<String, List<Station>> roads = stations.values().stream()
+			.collect(Collectors.groupingBy(Station::roadId));
+		roads.values().forEach(l -> l.sort(Comparator.comparingDouble(Station::km).thenComparing(Station::id)));
+
 		Map<String, Station> newStations = new HashMap<>();
 
 //		for roads with id 44 and 17 there is only one station -> determination of direction by using other stations of the same road does not work
@@ -253,11 +265,11 @@ public class CreateCountsFromDatosVialesPortal implements MATSimAppCommand {
 					Station duplicate = new Station(id, e.getValue().coord(), i, e.getValue().km, e.getValue().roadId,
 						getVolumeData(e.getValue().volumes.totalVolume / 2, e.getValue().volumes.carFactor));
 
-					determineStationDirection(duplicate, duplicate.flowDirection, oppositeFlowDirRoads);
+					determineStationDirection(duplicate, duplicate.flowDirection, oppositeFlowDirRoads, roads.get(duplicate.roadId));
 					newStations.put(id, duplicate);
 				}
 			} else {
-				determineStationDirection(e.getValue(), flowDir, oppositeFlowDirRoads);
+				determineStationDirection(e.getValue(), flowDir, oppositeFlowDirRoads, roads.get(e.getValue().roadId));
 			}
 		}
 
@@ -266,6 +278,25 @@ public class CreateCountsFromDatosVialesPortal implements MATSimAppCommand {
 		stations.putAll(newStations);
 	}
 
+	private Station readStation(Path path, CSVFormat format, CoordinateTransformation ct) throws IOException {
+		try (CSVParser parser = new CSVParser(IOUtils.getBufferedReader(path.toUri().toURL()), format)) {
+//			every file consists of only 1 record -> 1 station = 1 file
+
+			CSVRecord rec = parser.getRecords().get(0);
+
+			Coord coord = ct.transform(new Coord(Double.parseDouble(rec.get("LONG")), Double.parseDouble(rec.get("LAT"))));
+
+			String id = rec.get(1) + "_" + coord.getX() + "_" + coord.getY() + "_" + rec.get("SC") + "_" + Double.parseDouble(rec.get("KM"));
+			long volume = Long.parseLong(rec.get(24).replace("\"", ""));
+			double carFactor = Double.parseDouble(rec.get("AUTOS")) / 100;
+
+			return new Station(id, coord,
+				Integer.parseInt(rec.get("SC")), Double.parseDouble(rec.get("KM")), rec.get(1), getVolumeData(volume, carFactor));
+		} catch (IOException e) {
+			throw new IOException("Error processing file {}: " + path);
+		}
+	}
+
 	private CountData getVolumeData(long totalVolume, double carFactor) {
 
 		long motorizedVolume = Math.round(totalVolume * carFactor);
@@ -308,22 +339,18 @@ public class CreateCountsFromDatosVialesPortal implements MATSimAppCommand {
 		newStations.putAll(manualStations);
 	}
 
-	private void determineStationDirection(Station station, int flowDir, List<String> oppositeFlowDirRoads) {
+	/**
+	 * Determine the direction of a station based on the nearest station on the same road.
+	 *
+	 * @param road all stations of the road, sorted by km
+	 */
+	private void determineStationDirection(Station station, int flowDir, List<String> oppositeFlowDirRoads, List<Station> road) {
 //		find the next station on same carretera based on km count
-		Map<String, Station> filtered = stations.entrySet().stream()
-			.filter(entry -> entry.getValue().roadId.equals(station.roadId))
-			.filter(entry -> entry.getValue().km != station.km)
-			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-
-		Map<String, Double> stationDistances = new HashMap<>();
-//		get distances from all filtered stations to current station
-		filtered.entrySet().stream().forEach(entry -> stationDistances.put(entry.getKey(), Math.abs(station.km - entry.getValue().km)));
+		Station nearest = findNearestStation(station, road);
 
-//		get station id of station with the fewest distance to current station
-		String nearestStationId = stationDistances.entrySet().stream()
-			.sorted(Map.Entry.comparingByValue())
-			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new))
-			.entrySet().iterator().next().getKey();
+		if (nearest == null) {
+			throw new NoSuchElementException("There is no other station on road " + station.roadId + ". The direction of station " + station.id + " can not be determined.");
+		}
 
 //		for some exceptional roads, the flowDirection goes against the kilometer count of the road
 		if (oppositeFlowDirRoads.contains(station.roadId)) {
@@ -338,19 +365,19 @@ public class CreateCountsFromDatosVialesPortal implements MATSimAppCommand {
 		Station from = null;
 
 		if (flowDir == 1) {
-			if (filtered.get(nearestStationId).km > station.km) {
-				to = filtered.get(nearestStationId);
+			if (nearest.km > station.km) {
+				to = nearest;
 				from = station;
 			} else {
 				to = station;
-				from = filtered.get(nearestStationId);
+				from = nearest;
 			}
 		} else if (flowDir == 2) {
-			if (filtered.get(nearestStationId).km > station.km) {
+			if (nearest.km > station.km) {
 				to = station;
-				from = filtered.get(nearestStationId);
+				from = nearest;
 			} else {
-				to = filtered.get(nearestStationId);
+				to = nearest;
 				from = station;
 			}
 		}
@@ -362,6 +389,39 @@ public class CreateCountsFromDatosVialesPortal implements MATSimAppCommand {
 		}
 	}
 
+	/**
+	 * Find the station with the least km distance, which is not at the same km. The road needs to be sorted by km.
+	 */
+	private static Station findNearestStation(Station station, List<Station> road) {
+
+		// first station with km >= station km
+		int lo = 0;
+		int hi = road.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (road.get(mid).km < station.km)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		Station before = lo > 0 ? road.get(lo - 1) : null;
+
+		// skip stations at the same km
+		int after = lo;
+		while (after < road.size() && road.get(after).km == station.km)
+			after++;
+
+		Station next = after < road.size() ? road.get(after) : null;
+
+		if (before == null)
+			return next;
+		if (next == null)
+			return before;
+
+		return station.km - before.km <= next.km - station.km ? before : next;
+	}
+
 	private record Station(String id, AtomicReference<String> direction, Coord coord, AtomicReference<Link> linkAtomicReference, int flowDirection, double km, String roadId, CountData volumes) {
 
 		private Station(String id, Coord coord, int flowDirection, double km, String roadId, CountData volumes) {
@@ -4,6 +4,11 @@ import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.prepare.population.BinaryPopulationReader;
+import org.matsim.prepare.population.BinaryPopulationWriter;
 import org.matsim.simwrapper.Dashboard;
 import org.matsim.simwrapper.SimWrapper;
 
@@ -66,6 +71,11 @@ public final class MexicoCityUtils {
 
 	public static final String ROAD_PRICING_AREA = "roadPricingAreaShp";
 
+	/**
+	 * File extension of populations in the binary format, see {@link BinaryPopulationWriter}.
+	 */
+	public static final String BINARY_POPULATION = ".bpop";
+
 	//do not instantiate
 	private MexicoCityUtils() {
 	}
@@ -99,6 +109,36 @@ public final class MexicoCityUtils {
 		return new Coord(roundNumber(coord.getX()), roundNumber(coord.getY()));
 	}
 
+	/**
+	 * Check whether a population file is in the binary format. This is determined by the file extension, i.e. .bpop or .bpop.gz.
+	 */
+	public static boolean isBinaryPopulation(Path path) {
+		String name = path.getFileName().toString();
+		return name.endsWith(BINARY_POPULATION) || name.endsWith(BINARY_POPULATION + ".gz");
+	}
+
+	/**
+	 * Read a population in the xml or the binary format.
+	 */
+	public static Population readPopulation(Path path) {
+		if (!isBinaryPopulation(path))
+			return PopulationUtils.readPopulation(path.toString());
+
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		new BinaryPopulationReader(population).read(path);
+		return population;
+	}
+
+	/**
+	 * Write a population in the xml or the binary format, depending on the file extension.
+	 */
+	public static void writePopulation(Population population, Path path) {
+		if (isBinaryPopulation(path))
+			new BinaryPopulationWriter(population).write(path);
+		else
+			PopulationUtils.writePopulation(population, path.toString());
+	}
+
 	public static void addDashboardToExistingRunOutput(Dashboard dashboard, Path runDir) throws IOException {
 		SimWrapper sw = SimWrapper.create();
 
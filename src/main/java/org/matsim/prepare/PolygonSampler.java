@@ -0,0 +1,150 @@
+package org.matsim.prepare;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.TopologyException;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.triangulate.ConformingDelaunayTriangulationBuilder;
+import org.locationtech.jts.triangulate.ConstraintEnforcementException;
+import org.locationtech.jts.triangulate.quadedge.LocateFailureException;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.geotools.MGC;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Draws uniformly distributed coordinates within a polygon.
+ * The polygon is triangulated once, a triangle is chosen weighted by its area and a point is drawn uniformly within the triangle.
+ * Thus, no rejection sampling is needed. If the geometry can not be triangulated, a bounded rejection sampling within the envelope is used instead.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class PolygonSampler {
+
+	private static final Logger log = LogManager.getLogger(PolygonSampler.class);
+
+	/**
+	 * Maximum number of tries for the rejection sampling fallback.
+	 */
+	private static final int MAX_TRIES = 1000;
+
+	private final Geometry geometry;
+
+	/**
+	 * Corners of all triangles, each triangle has 6 entries x0, y0, x1, y1, x2, y2.
+	 */
+	private final double[] triangles;
+
+	/**
+	 * Cumulative area of the triangles.
+	 */
+	private final double[] cumArea;
+
+	private final PreparedGeometry prepared;
+
+	/**
+	 * Triangulates the geometry, which should be a (multi) polygon.
+	 */
+	public PolygonSampler(Geometry geometry) {
+		this.geometry = geometry;
+		this.prepared = new PreparedGeometryFactory().create(geometry);
+
+		double[] corners = null;
+		double[] areas = null;
+		try {
+			ConformingDelaunayTriangulationBuilder builder = new ConformingDelaunayTriangulationBuilder();
+			builder.setSites(geometry);
+			builder.setConstraints(geometry);
+
+			Geometry tris = builder.getTriangles(geometry.getFactory());
+			corners = new double[tris.getNumGeometries() * 6];
+			areas = new double[tris.getNumGeometries()];
+
+			int n = 0;
+			double sum = 0;
+			for (int i = 0; i < tris.getNumGeometries(); i++) {
+				Geometry tri = tris.getGeometryN(i);
+
+				// the triangulation covers the convex hull, triangles in holes or concave parts are removed
+				if (tri.getArea() <= 0 || !prepared.contains(tri.getInteriorPoint())) {
+					continue;
+				}
+
+				Coordinate[] c = tri.getCoordinates();
+				for (int j = 0; j < 3; j++) {
+					corners[n * 6 + j * 2] = c[j].x;
+					corners[n * 6 + j * 2 + 1] = c[j].y;
+				}
+
+				sum += tri.getArea();
+				areas[n++] = sum;
+			}
+
+			corners = Arrays.copyOf(corners, n * 6);
+			areas = Arrays.copyOf(areas, n);
+		} catch (ConstraintEnforcementException | LocateFailureException | TopologyException e) {
+			log.warn("Could not triangulate geometry, falling back to rejection sampling.", e);
+		}
+
+		if (areas == null || areas.length == 0) {
+			this.triangles = null;
+			this.cumArea = null;
+		} else {
+			this.triangles = corners;
+			this.cumArea = areas;
+		}
+	}
+
+	/**
+	 * Draw a random coordinate within the geometry.
+	 */
+	public Coord sample(SplittableRandom rnd) {
+		if (triangles == null) {
+			return sampleEnvelope(rnd);
+		}
+
+		double total = cumArea[cumArea.length - 1];
+		int idx = Arrays.binarySearch(cumArea, rnd.nextDouble() * total);
+		if (idx < 0) {
+			idx = -idx - 1;
+		}
+		idx = Math.min(idx, cumArea.length - 1);
+
+		double u = rnd.nextDouble();
+		double v = rnd.nextDouble();
+
+		// reflect into the lower triangle of the unit square
+		if (u + v > 1) {
+			u = 1 - u;
+			v = 1 - v;
+		}
+
+		int i = idx * 6;
+		double x = triangles[i] + u * (triangles[i + 2] - triangles[i]) + v * (triangles[i + 4] - triangles[i]);
+		double y = triangles[i + 1] + u * (triangles[i + 3] - triangles[i + 1]) + v * (triangles[i + 5] - triangles[i + 1]);
+
+		return new Coord(x, y);
+	}
+
+	private Coord sampleEnvelope(SplittableRandom rnd) {
+		Envelope env = geometry.getEnvelopeInternal();
+		for (int i = 0; i < MAX_TRIES; i++) {
+			double x = rnd.nextDouble(env.getMinX(), env.getMaxX());
+			double y = rnd.nextDouble(env.getMinY(), env.getMaxY());
+
+			if (prepared.contains(MGC.xy2Point(x, y))) {
+				return new Coord(x, y);
+			}
+		}
+
+		return MGC.point2Coord(geometry.getInteriorPoint());
+	}
+
+	public Geometry getGeometry() {
+		return geometry;
+	}
+}
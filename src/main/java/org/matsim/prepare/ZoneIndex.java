@@ -0,0 +1,140 @@
+package org.matsim.prepare;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.operation.buffer.BufferOp;
+import org.locationtech.jts.operation.buffer.BufferParameters;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.geotools.MGC;
+import org.opengis.feature.simple.SimpleFeature;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Spatial lookup of zones (e.g. AGEBs, districts, municipalities) and an associated value.
+ * Zones are stored as prepared geometries in a STRtree, so a lookup only tests the few zones whose bounding box contains the coordinate.
+ * If zones overlap, the zone which was added first wins, which makes lookups deterministic.
+ * Once the first query has been executed, no more zones can be added. Queries are thread-safe,
+ * the tree is built on the first query by the synchronized {@link STRtree#build()}.
+ *
+ * @param <T> type of the value attached to each zone.
+ */
+public final class ZoneIndex<T> {
+
+	private final STRtree index = new STRtree();
+	private final PreparedGeometryFactory factory = new PreparedGeometryFactory();
+	private int size;
+
+	/**
+	 * Creates an empty index. Zones can be added with {@link #add(Geometry, Object)}.
+	 */
+	public ZoneIndex() {
+	}
+
+	/**
+	 * Creates an index of all features. The value of each zone is derived from its feature.
+	 */
+	public ZoneIndex(Collection<SimpleFeature> features, Function<SimpleFeature, T> value) {
+		for (SimpleFeature ft : features) {
+			add((Geometry) ft.getDefaultGeometry(), value.apply(ft));
+		}
+	}
+
+	/**
+	 * Add a zone to the index. Invalid geometries are repaired with a zero-width buffer, empty geometries are ignored.
+	 */
+	public void add(Geometry geometry, T value) {
+		if (geometry == null || geometry.isEmpty()) {
+			return;
+		}
+
+		Geometry geom = geometry;
+		if (!geom.isValid()) {
+			geom = BufferOp.bufferOp(geom, 0.0, BufferParameters.CAP_ROUND);
+		}
+
+		index.insert(geom.getEnvelopeInternal(), new Zone<>(size++, factory.create(geom), value));
+	}
+
+	/**
+	 * Return the value of the zone containing the coordinate, or null if there is none.
+	 */
+	public T query(Coord coord) {
+		return query(MGC.coord2Point(coord));
+	}
+
+	/**
+	 * Return the value of the zone containing the point, or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public T query(Point point) {
+		Zone<T> match = null;
+		for (Object o : index.query(point.getEnvelopeInternal())) {
+			Zone<T> zone = (Zone<T>) o;
+			if ((match == null || zone.idx < match.idx) && zone.geometry.contains(point)) {
+				match = zone;
+			}
+		}
+
+		return match == null ? null : match.value;
+	}
+
+	/**
+	 * Return the values of all zones containing the coordinate, in the order the zones were added.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> queryAll(Coord coord) {
+		Point point = MGC.coord2Point(coord);
+		List<Zone<T>> matches = new ArrayList<>();
+		for (Object o : index.query(point.getEnvelopeInternal())) {
+			Zone<T> zone = (Zone<T>) o;
+			if (zone.geometry.contains(point)) {
+				matches.add(zone);
+			}
+		}
+
+		matches.sort(Comparator.comparingInt(Zone::idx));
+		return matches.stream().map(Zone::value).toList();
+	}
+
+	/**
+	 * Return the values of all zones intersecting the given geometry, in the order the zones were added.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> queryAll(Geometry geometry) {
+		List<Zone<T>> matches = new ArrayList<>();
+		for (Object o : index.query(geometry.getEnvelopeInternal())) {
+			Zone<T> zone = (Zone<T>) o;
+			if (zone.geometry.intersects(geometry)) {
+				matches.add(zone);
+			}
+		}
+
+		matches.sort(Comparator.comparingInt(Zone::idx));
+		return matches.stream().map(Zone::value).toList();
+	}
+
+	/**
+	 * Check whether the coordinate lies within any zone.
+	 */
+	public boolean contains(Coord coord) {
+		return query(coord) != null;
+	}
+
+	/**
+	 * Number of zones in the index.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private record Zone<T>(int idx, PreparedGeometry geometry, T value) {
+	}
+}
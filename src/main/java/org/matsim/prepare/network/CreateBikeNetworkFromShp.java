@@ -10,7 +10,6 @@ import org.matsim.application.MATSimAppCommand;
 import org.matsim.application.options.ShpOptions;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.MultimodalNetworkCleaner;
-import org.matsim.core.utils.geometry.geotools.MGC;
 import org.opengis.feature.simple.SimpleFeature;
 import picocli.CommandLine;
 
@@ -29,6 +28,11 @@ public class CreateBikeNetworkFromShp implements MATSimAppCommand {
 	private Path inputNetwork;
 	@CommandLine.Option(names = "--output", description = "Output xml file", required = true)
 	private Path output;
+	@CommandLine.Option(names = "--buffer", description = "Buffer in meters around the cycleway geometries.", defaultValue = "0")
+	private double buffer;
+	@CommandLine.Option(names = "--min-overlap", description = "Minimum share of the link length, which needs to be within cycleways. " +
+		"If not set, both nodes of a link need to be within cycleways.")
+	private Double minOverlap;
 	@CommandLine.Mixin
 	private final ShpOptions shp = new ShpOptions();
 
@@ -55,33 +59,23 @@ public class CreateBikeNetworkFromShp implements MATSimAppCommand {
 
 		log.info("Starting to adapt the network, this might take a while!");
 
-		int count = 0;
-		for (Link link : network.getLinks().values()) {
-
-			boolean fromInside = false;
-			boolean toInside = false;
+		CyclewayMatcher matcher = new CyclewayMatcher(geometries, buffer, minOverlap == null ? Double.NaN : minOverlap);
 
-			for (Geometry geom : geometries) {
-				if (!fromInside) {
-					fromInside = MGC.coord2Point(link.getFromNode().getCoord()).within(geom);
-				}
+//		if to and from node are inside of _any_ cycleway shape we want to add bike as allowed mode.
+//		if we check isInside = MGC.coord2Point(link.getFromNode().getCoord()).within(geom) && MGC.coord2Point(link.getToNode().getCoord()).within(geom)
+//		for only one geometry at a time there are many holes, which leads to big parts of the bike net being "cleaned out"	-sme0524
+		List<Link> matched = network.getLinks().values().parallelStream()
+			.filter(matcher::matches)
+			.filter(link -> !link.getAttributes().getAttribute("type").toString().contains("highway.motorway"))
+			.toList();
 
-				if (!toInside) {
-					toInside = MGC.coord2Point(link.getToNode().getCoord()).within(geom);
-				}
-
-//				if to and from node are inside of _any_ cycleway shape we want to add bike as allowed mode.
-//				if we check isInside = MGC.coord2Point(link.getFromNode().getCoord()).within(geom) && MGC.coord2Point(link.getToNode().getCoord()).within(geom)
-//				for only one geometry at a time there are many holes, which leads to big parts of the bike net being "cleaned out"	-sme0524
-				if (fromInside && toInside && !link.getAttributes().getAttribute("type").toString().contains("highway.motorway")) {
-					Set<String> modes = new HashSet<>();
-					modes.add(TransportMode.bike);
-					modes.addAll(link.getAllowedModes());
-					link.setAllowedModes(modes);
-					count++;
-					break;
-				}
-			}
+		int count = 0;
+		for (Link link : matched) {
+			Set<String> modes = new HashSet<>();
+			modes.add(TransportMode.bike);
+			modes.addAll(link.getAllowedModes());
+			link.setAllowedModes(modes);
+			count++;
 		}
 
 		log.info("For {} links bike was added as an allowed mode.", count);
@@ -33,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 
 @CommandLine.Command(
 		name = "network-from-sumo-mexico-city",
@@ -88,6 +89,9 @@ public final class CreateMexicoCityNetworkFromSumo implements MATSimAppCommand {
 
 		MexicoCitySumoNetworkHandler handler = converter.convert(network, lanes);
 
+		// geometries only depend on the handler, they are written while the network is processed
+		CompletableFuture<Void> geometry = converter.writeGeometryAsync(handler, output.toAbsolutePath().toString().replace(".xml", "-linkGeometries.csv").replace(".gz", ""));
+
 		converter.calculateLaneCapacities(network, lanes);
 
 		// This needs to run without errors, otherwise network is broken
@@ -117,7 +121,7 @@ public final class CreateMexicoCityNetworkFromSumo implements MATSimAppCommand {
 		new NetworkWriter(network).write(output.toAbsolutePath().toString());
 		new LanesWriter(lanes).write(output.toAbsolutePath().toString().replace(".xml", "-lanes.xml"));
 
-		converter.writeGeometry(handler, output.toAbsolutePath().toString().replace(".xml", "-linkGeometries.csv").replace(".gz", ""));
+		geometry.join();
 
 		return 0;
 	}
@@ -0,0 +1,119 @@
+package org.matsim.prepare.network;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.operation.buffer.BufferOp;
+import org.locationtech.jts.operation.buffer.BufferParameters;
+import org.locationtech.jts.operation.union.UnaryUnionOp;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.geometry.geotools.MGC;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Matches network links to cycleway geometries.
+ * The (buffered) cycleways are stored in a STRtree, so that each link is only compared to the cycleways near to it.
+ * A link matches either if both of its nodes are within (possibly different) cycleways,
+ * or, if a minimum overlap is given, if at least this share of the link length is covered by cycleways.
+ * The matcher can be used from multiple threads.
+ */
+final class CyclewayMatcher {
+
+	private final STRtree index = new STRtree();
+	private final GeometryFactory gf = new GeometryFactory();
+
+	/**
+	 * Minimum share of the link length, NaN if the node criterion is used.
+	 */
+	private final double minOverlap;
+
+	/**
+	 * Create matcher.
+	 *
+	 * @param buffer     buffer around the cycleway geometries, 0 to use them as they are
+	 * @param minOverlap minimum share of the link length within cycleways, NaN to require both nodes to be within cycleways
+	 */
+	CyclewayMatcher(Collection<Geometry> geometries, double buffer, double minOverlap) {
+		this.minOverlap = minOverlap;
+
+		PreparedGeometryFactory factory = new PreparedGeometryFactory();
+		for (Geometry geometry : geometries) {
+			if (geometry == null || geometry.isEmpty())
+				continue;
+
+			// buffered geometries are always valid, others are repaired like in the ZoneIndex,
+			// as invalid polygons would cause topology exceptions when computing the overlap
+			Geometry geom = geometry;
+			if (buffer > 0)
+				geom = geom.buffer(buffer);
+			else if (!geom.isValid())
+				geom = BufferOp.bufferOp(geom, 0.0, BufferParameters.CAP_ROUND);
+
+			if (geom.isEmpty())
+				continue;
+
+			index.insert(geom.getEnvelopeInternal(), factory.create(geom));
+		}
+
+		// all cycleways are known, so the tree is built right away instead of on the first query
+		index.build();
+	}
+
+	/**
+	 * Check whether a link matches the cycleways.
+	 */
+	boolean matches(Link link) {
+		if (Double.isNaN(minOverlap))
+			return contains(link.getFromNode().getCoord()) && contains(link.getToNode().getCoord());
+
+		return getOverlap(link) >= minOverlap;
+	}
+
+	/**
+	 * Share of the straight link line, which lies within cycleways.
+	 */
+	@SuppressWarnings("unchecked")
+	double getOverlap(Link link) {
+		Coord from = link.getFromNode().getCoord();
+		Coord to = link.getToNode().getCoord();
+		LineString line = gf.createLineString(new Coordinate[]{MGC.coord2Coordinate(from), MGC.coord2Coordinate(to)});
+
+		if (line.getLength() == 0)
+			return contains(from) ? 1 : 0;
+
+		List<Geometry> covered = new ArrayList<>();
+		for (PreparedGeometry geom : (List<PreparedGeometry>) index.query(line.getEnvelopeInternal())) {
+			if (geom.containsProperly(line))
+				return 1;
+
+			if (geom.intersects(line))
+				covered.add(line.intersection(geom.getGeometry()));
+		}
+
+		if (covered.isEmpty())
+			return 0;
+
+		// cycleways may overlap, so the covered parts are merged before measuring them
+		return UnaryUnionOp.union(covered).getLength() / line.getLength();
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean contains(Coord coord) {
+		Point point = MGC.coord2Point(coord);
+		for (PreparedGeometry geom : (List<PreparedGeometry>) index.query(point.getEnvelopeInternal())) {
+			if (geom.contains(point))
+				return true;
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,186 @@
+package org.matsim.prepare.network;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.prepare.ZoneIndex;
+import org.opengis.feature.simple.SimpleFeature;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Classifies links by the areas, which contain both nodes of a link.
+ * Areas are looked up with a {@link ZoneIndex}, so each node is only tested against the few areas whose bounding box contains it.
+ * The classification can be cached in a file. The name of the cache file contains a checksum of the network and the areas,
+ * so that a cache is only reused for the same inputs.
+ */
+public final class LinkAreaClassifier {
+
+	private static final Logger log = LogManager.getLogger(LinkAreaClassifier.class);
+
+	private static final int[] EMPTY = new int[0];
+
+	private final ZoneIndex<Integer> index = new ZoneIndex<>();
+
+	/**
+	 * Create classifier for the given areas. The area indices in the results refer to the position in this list.
+	 */
+	public LinkAreaClassifier(List<Geometry> areas) {
+		for (int i = 0; i < areas.size(); i++) {
+			index.add(areas.get(i), i);
+		}
+	}
+
+	/**
+	 * Geometries of the features, in the same order.
+	 */
+	public static List<Geometry> getGeometries(List<SimpleFeature> features) {
+		return features.stream().map(ft -> (Geometry) ft.getDefaultGeometry()).toList();
+	}
+
+	/**
+	 * Classify all links of the network. If a cache directory is given, the result is read from or written to it.
+	 *
+	 * @param areaFile file the areas were read from, its name is part of the cache file name and key
+	 * @param cacheDir directory for the cache file, may be null
+	 * @return area indices for all links, which are within at least one area
+	 */
+	@SuppressWarnings("IllegalCatch")
+	public static Map<Id<Link>, int[]> classify(Network network, Path areaFile, List<Geometry> areas, Path cacheDir) {
+
+		Path cache = null;
+		if (cacheDir != null) {
+			String name = areaFile.getFileName().toString().replace(".shp", "");
+			cache = cacheDir.resolve(String.format("%s-links-%08x.csv", name, cacheKey(network, name, areas)));
+		}
+
+		if (cache != null && Files.exists(cache)) {
+			try {
+				Map<Id<Link>, int[]> result = read(cache);
+				log.info("Read {} links within areas from cache {}", result.size(), cache);
+				return result;
+			} catch (IOException | RuntimeException e) {
+				log.warn("Could not read cache {}, links will be classified again", cache, e);
+			}
+		}
+
+		Map<Id<Link>, int[]> result = new LinkAreaClassifier(areas).classify(network);
+		log.info("Classified {} of {} links within {} areas", result.size(), network.getLinks().size(), areas.size());
+
+		if (cache != null) {
+			try {
+				Files.createDirectories(cacheDir);
+				write(cache, network, result);
+			} catch (IOException e) {
+				log.warn("Could not write cache {}", cache, e);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Classify all links of the network. Links are processed in parallel.
+	 *
+	 * @return area indices for all links, which are within at least one area
+	 */
+	public Map<Id<Link>, int[]> classify(Network network) {
+		return network.getLinks().values().parallelStream()
+			.map(link -> Map.entry(link.getId(), classify(link)))
+			.filter(e -> e.getValue().length > 0)
+			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+	}
+
+	/**
+	 * Return the indices of all areas containing both nodes of the link, in the order of the features.
+	 */
+	public int[] classify(Link link) {
+		List<Integer> from = index.queryAll(link.getFromNode().getCoord());
+		if (from.isEmpty())
+			return EMPTY;
+
+		List<Integer> to = index.queryAll(link.getToNode().getCoord());
+		return from.stream().filter(to::contains).mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Key of the network and the areas. A single checksum is computed over the link ids and node coordinates in iteration order,
+	 * followed by the name of the areas and the binary representation of each area geometry in order.
+	 */
+	private static long cacheKey(Network network, String name, List<Geometry> areas) {
+		CRC32 crc = new CRC32();
+		ByteBuffer coords = ByteBuffer.allocate(4 * Double.BYTES);
+		for (Link link : network.getLinks().values()) {
+			Coord from = link.getFromNode().getCoord();
+			Coord to = link.getToNode().getCoord();
+
+			crc.update(link.getId().toString().getBytes(StandardCharsets.UTF_8));
+			coords.clear();
+			coords.putDouble(from.getX()).putDouble(from.getY()).putDouble(to.getX()).putDouble(to.getY());
+			coords.flip();
+			crc.update(coords);
+		}
+
+		crc.update(name.getBytes(StandardCharsets.UTF_8));
+
+		WKBWriter writer = new WKBWriter();
+		for (Geometry area : areas) {
+			crc.update(writer.write(area));
+		}
+
+		return crc.getValue();
+	}
+
+	private static Map<Id<Link>, int[]> read(Path cache) throws IOException {
+		Map<Id<Link>, int[]> result = new HashMap<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(cache.toString())) {
+			// skip header
+			String line = reader.readLine();
+			while ((line = reader.readLine()) != null) {
+				int idx = line.lastIndexOf(',');
+				int[] areas = Arrays.stream(line.substring(idx + 1).split(";")).mapToInt(Integer::parseInt).toArray();
+				result.put(Id.createLinkId(line.substring(0, idx)), areas);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Write the cache to a temporary file first and move it afterward, so that concurrent runs never read incomplete files.
+	 */
+	private static void write(Path cache, Network network, Map<Id<Link>, int[]> result) throws IOException {
+		Path tmp = Files.createTempFile(cache.getParent(), "links", ".csv");
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(tmp.toString())) {
+			writer.write("link_id,areas\n");
+			for (Id<Link> id : network.getLinks().keySet()) {
+				int[] areas = result.get(id);
+				if (areas == null)
+					continue;
+
+				writer.write(id.toString());
+				writer.write(',');
+				writer.write(Arrays.stream(areas).mapToObj(String::valueOf).collect(Collectors.joining(";")));
+				writer.write('\n');
+			}
+		}
+
+		Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,96 @@
+package org.matsim.prepare.network;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.ItemDistance;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index of the straight link segments of a network, which allows finding the nearest link without iterating all links.
+ * Only links allowing one of the given modes and passing the filter are included.
+ * The distance is measured exactly to the link segment, like in {@link org.matsim.core.network.NetworkUtils#getNearestLinkExactly(Network, Coord)}.
+ * The index is built on creation and can be queried from multiple threads.
+ */
+public final class LinkIndex {
+
+	private final STRtree index = new STRtree();
+	private final int size;
+
+	/**
+	 * Create index of all links of the network.
+	 *
+	 * @param modes  links need to allow at least one of these modes, empty to include all links
+	 * @param filter additional filter for links to include
+	 */
+	public LinkIndex(Network network, Set<String> modes, Predicate<Link> filter) {
+		int n = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!modes.isEmpty() && Collections.disjoint(modes, link.getAllowedModes()))
+				continue;
+
+			if (!filter.test(link))
+				continue;
+
+			Coord from = link.getFromNode().getCoord();
+			Coord to = link.getToNode().getCoord();
+			index.insert(new Envelope(from.getX(), to.getX(), from.getY(), to.getY()), link);
+			n++;
+		}
+
+		this.size = n;
+		index.build();
+	}
+
+	/**
+	 * Create index of all links allowing one of the modes.
+	 */
+	public LinkIndex(Network network, Set<String> modes) {
+		this(network, modes, link -> true);
+	}
+
+	/**
+	 * Distance between a coordinate and a link segment.
+	 */
+	private static double distance(Coord coord, Link link) {
+		return CoordUtils.distancePointLinesegment(link.getFromNode().getCoord(), link.getToNode().getCoord(), coord);
+	}
+
+	/**
+	 * Return the link with the least distance to the coordinate, or null if the index is empty.
+	 */
+	public Link getNearestLink(Coord coord) {
+		if (size == 0)
+			return null;
+
+		Envelope env = new Envelope(coord.getX(), coord.getX(), coord.getY(), coord.getY());
+		return (Link) index.nearestNeighbour(env, coord, new LinkDistance());
+	}
+
+	/**
+	 * Number of links in the index.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Distance between the query coordinate and the links in the tree.
+	 */
+	private static final class LinkDistance implements ItemDistance {
+		@Override
+		public double distance(ItemBoundable a, ItemBoundable b) {
+			if (a.getItem() instanceof Coord c)
+				return LinkIndex.distance(c, (Link) b.getItem());
+
+			return LinkIndex.distance((Coord) b.getItem(), (Link) a.getItem());
+		}
+	}
+}
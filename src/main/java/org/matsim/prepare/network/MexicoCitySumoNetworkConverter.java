@@ -34,7 +34,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 import static org.matsim.lanes.LanesUtils.calculateAndSetCapacity;
@@ -141,6 +141,9 @@ public final class MexicoCitySumoNetworkConverter implements Callable<Integer> {
 
 		MexicoCitySumoNetworkHandler handler = convert(network, lanes);
 
+		// geometries only depend on the handler, they are written while the network is processed
+		CompletableFuture<Void> geometry = writeGeometryAsync(handler, output.toAbsolutePath().toString().replace(".xml", "-linkGeometries.csv"));
+
 		calculateLaneCapacities(network, lanes);
 
 		// This needs to run without errors, otherwise network is broken
@@ -157,7 +160,7 @@ public final class MexicoCitySumoNetworkConverter implements Callable<Integer> {
 
 		new LanesWriter(lanes).write(output.toAbsolutePath().toString().replace(".xml", "-lanes.xml"));
 
-		writeGeometry(handler, output.toAbsolutePath().toString().replace(".xml", "-linkGeometries.csv"));
+		geometry.join();
 
 		return 0;
 	}
@@ -175,40 +178,52 @@ public final class MexicoCitySumoNetworkConverter implements Callable<Integer> {
 		}
 	}
 
+	/**
+     * Writes link geometries in a separate thread. The handler is only read, but it must not be modified until the returned future is completed.
+     */
+	public CompletableFuture<Void> writeGeometryAsync(MexicoCitySumoNetworkHandler handler, String path) {
+		return CompletableFuture.runAsync(() -> writeGeometry(handler, path));
+	}
+
 	/**
      * Writes link geometries.
      */
 	public void writeGeometry(MexicoCitySumoNetworkHandler handler, String path) {
-		try (BufferedWriter out = IOUtils.getBufferedWriter(path)) {
+		// records are formatted into a reused buffer and written one by one
+		StringBuilder sb = new StringBuilder();
+
+		try (BufferedWriter out = IOUtils.getBufferedWriter(path); Formatter fmt = new Formatter(sb, Locale.US)) {
 			CSVPrinter printer = new CSVPrinter(out, CSVFormat.DEFAULT.withHeader("LinkId", "Geometry"));
 
 			for (Map.Entry<String, MexicoCitySumoNetworkHandler.Edge> e : handler.getEdges().entrySet()) {
 
 				MexicoCitySumoNetworkHandler.Edge edge = e.getValue();
 
-				// Create straight line for edges without shape
-				if (edge.shape.isEmpty()) {
+				// Create straight line for edges without shape, the edge itself is not modified
+				List<double[]> shape = edge.shape;
+				if (shape.isEmpty()) {
 
 					MexicoCitySumoNetworkHandler.Junction f = handler.getJunctions().get(edge.from);
 					MexicoCitySumoNetworkHandler.Junction t = handler.getJunctions().get(edge.to);
 					if (f == null || t == null)
 						continue;
 
-					edge.shape.add(f.coord);
-					edge.shape.add(t.coord);
+					shape = List.of(f.coord, t.coord);
 				}
 
-				printer.printRecord(
-					e.getKey(),
-					edge.shape.stream().map(d -> {
-						Coord p = handler.createCoord(d);
-						return String.format(Locale.US, "(%f,%f)", p.getX(), p.getY());
-					}).collect(Collectors.joining(","))
-				);
-
+				sb.setLength(0);
+				for (double[] d : shape) {
+					Coord p = handler.createCoord(d);
+					if (!sb.isEmpty())
+						sb.append(',');
+					fmt.format("(%f,%f)", p.getX(), p.getY());
+				}
 
+				printer.printRecord(e.getKey(), sb);
 			}
 
+			printer.flush();
+
 		} catch (IOException e) {
 			log.error("Could not write link geometries", e);
 		}
@@ -225,17 +240,20 @@ public final class MexicoCitySumoNetworkConverter implements Callable<Integer> {
 
 		log.info("Parsing SUMO network");
 
-		MexicoCitySumoNetworkHandler sumoHandler = MexicoCitySumoNetworkHandler.read(input.get(0).toFile());
+		List<MexicoCitySumoNetworkHandler> handlers = readAll();
+
+		MexicoCitySumoNetworkHandler sumoHandler = handlers.get(0);
 		log.info("Parsed {} edges with {} junctions", sumoHandler.edges.size(), sumoHandler.junctions.size());
 
+		// merging is done sequentially in input order, so that the result does not depend on the parsing order
 		for (int i = 1; i < input.size(); i++) {
 
 			CoordinateTransformation ct = TransformationFactory.getCoordinateTransformation(fromCRS, toCRS);
 
 			File file = input.get(i).toFile();
-			MexicoCitySumoNetworkHandler other = MexicoCitySumoNetworkHandler.read(file);
+			MexicoCitySumoNetworkHandler other = handlers.get(i);
 
-			writeInductionLoops(file, other);
+			checkConflicts(sumoHandler, other, file);
 
 			log.info("Merging {} edges with {} junctions from {} into base network", other.edges.size(), other.junctions.size(), file);
 			sumoHandler.merge(other, ct);
@@ -409,6 +427,82 @@ public final class MexicoCitySumoNetworkConverter implements Callable<Integer> {
 		return sumoHandler;
 	}
 
+	/**
+	 * Parse all input files concurrently. Induction loops are written for all but the first file, as soon as it has been parsed.
+	 *
+	 * @return handlers in the same order as the input
+	 */
+	private List<MexicoCitySumoNetworkHandler> readAll() throws ParserConfigurationException, SAXException, IOException {
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(input.size(), Runtime.getRuntime().availableProcessors()));
+		try {
+			List<Future<MexicoCitySumoNetworkHandler>> futures = new ArrayList<>();
+			for (int i = 0; i < input.size(); i++) {
+				File file = input.get(i).toFile();
+				boolean loops = i > 0;
+				futures.add(executor.submit(() -> {
+					MexicoCitySumoNetworkHandler handler = MexicoCitySumoNetworkHandler.read(file);
+					if (loops)
+						writeInductionLoops(file, handler);
+
+					return handler;
+				}));
+			}
+
+			List<MexicoCitySumoNetworkHandler> handlers = new ArrayList<>();
+			for (Future<MexicoCitySumoNetworkHandler> f : futures) {
+				handlers.add(f.get());
+			}
+
+			return handlers;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing SUMO networks", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException ex)
+				throw ex;
+			if (cause instanceof SAXException ex)
+				throw ex;
+			if (cause instanceof ParserConfigurationException ex)
+				throw ex;
+			if (cause instanceof RuntimeException ex)
+				throw ex;
+
+			throw new IllegalStateException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Check for ids that occur in both networks, but refer to different elements.
+	 * The merge assumes consistent ids, such edges will be overwritten by the other network.
+	 */
+	private static void checkConflicts(MexicoCitySumoNetworkHandler base, MexicoCitySumoNetworkHandler other, File file) {
+
+		List<String> conflicts = new ArrayList<>();
+		int shared = 0;
+		for (MexicoCitySumoNetworkHandler.Edge edge : other.edges.values()) {
+			MexicoCitySumoNetworkHandler.Edge existing = base.edges.get(edge.id);
+			if (existing == null)
+				continue;
+
+			shared++;
+			if (!existing.from.equals(edge.from) || !existing.to.equals(edge.to))
+				conflicts.add(edge.id);
+		}
+
+		log.info("{} of {} edges from {} are already present in the base network", shared, other.edges.size(), file);
+
+		if (!conflicts.isEmpty()) {
+			Collections.sort(conflicts);
+			log.warn("{} edges from {} have the same id as base edges, but connect different junctions. They will override the base edges, e.g. {}",
+				conflicts.size(), file, conflicts.subList(0, Math.min(10, conflicts.size())));
+		}
+	}
+
 	private void writeInductionLoops(File file, MexicoCitySumoNetworkHandler other) throws IOException {
 		Path loops = Path.of(file.getAbsolutePath().replace(".xml", "_loops.xml"));
 		BufferedWriter writer = Files.newBufferedWriter(loops);
@@ -0,0 +1,100 @@
+package org.matsim.prepare.network;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.network.NetworkUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Content addressed cache of a prepared network.
+ * The name of the cache file is derived from checksums of all input files and the options used for the preparation,
+ * so that runs with the same inputs can reuse the network instead of preparing it again.
+ */
+public final class NetworkCache {
+
+	/**
+	 * Version of the network preparation, which is part of the cache key.
+	 * Needs to be increased whenever the preparation changes, otherwise outdated networks are read from the cache.
+	 */
+	public static final int VERSION = 1;
+
+	private static final Logger log = LogManager.getLogger(NetworkCache.class);
+
+	private final Path file;
+
+	private NetworkCache(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Create a cache entry in the given directory.
+	 *
+	 * @param files   input files, whose content determines the prepared network
+	 * @param options all other options influencing the preparation
+	 */
+	public static NetworkCache of(Path dir, List<Path> files, Object... options) throws IOException {
+		long key = 0;
+		for (Path f : files) {
+			key = 31 * key + checksum(f);
+		}
+
+		CRC32 crc = new CRC32();
+		for (Object o : options) {
+			crc.update(String.valueOf(o).getBytes(StandardCharsets.UTF_8));
+			crc.update(';');
+		}
+
+		key = 31 * key + crc.getValue();
+
+		return new NetworkCache(dir.resolve(String.format("prepared-network-v%d-%016x.xml.gz", VERSION, key)));
+	}
+
+	/**
+	 * CRC32 checksum of the file content.
+	 */
+	public static long checksum(Path file) throws IOException {
+		CRC32 crc = new CRC32();
+		try (InputStream in = Files.newInputStream(file)) {
+			byte[] buffer = new byte[65536];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				crc.update(buffer, 0, n);
+			}
+		}
+
+		return crc.getValue();
+	}
+
+	/**
+	 * Whether a prepared network exists for this key.
+	 */
+	public boolean exists() {
+		return Files.exists(file);
+	}
+
+	/**
+	 * Write the prepared network. The file is written to a temporary file first, so that concurrent runs never read incomplete files.
+	 */
+	public void write(Network network) throws IOException {
+		Files.createDirectories(file.getParent());
+
+		Path tmp = Files.createTempFile(file.getParent(), "prepared-network", ".xml.gz");
+		NetworkUtils.writeNetwork(network, tmp.toString());
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		log.info("Prepared network has been cached in {}", file);
+	}
+
+	public Path getFile() {
+		return file;
+	}
+}
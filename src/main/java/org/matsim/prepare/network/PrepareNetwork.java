@@ -12,11 +12,12 @@ import org.matsim.application.MATSimAppCommand;
 import org.matsim.application.options.ShpOptions;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.MultimodalNetworkCleaner;
-import org.matsim.core.utils.geometry.geotools.MGC;
 import picocli.CommandLine;
 
 import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @CommandLine.Command(
@@ -61,9 +62,19 @@ public class PrepareNetwork implements MATSimAppCommand {
 	 * prepare network for modelling bike as network mode.
 	 */
 	public static void prepareBikeOnNetwork(Network network, ShpOptions shp) {
+		prepareBikeOnNetwork(network, shp, null);
+	}
+
+	/**
+	 * prepare network for modelling bike as network mode. The links within the bike area are cached in the given directory, if it is not null.
+	 */
+	public static void prepareBikeOnNetwork(Network network, ShpOptions shp, Path cacheDir) {
 		Geometry bikeArea = shp.getGeometry();
 
-		boolean isInsideArea;
+//		the shape file is only required to be a local path if the result is cached
+		Map<Id<Link>, int[]> inArea = cacheDir == null ? new LinkAreaClassifier(List.of(bikeArea)).classify(network)
+			: LinkAreaClassifier.classify(network, Path.of(shp.getShapeFile()), List.of(bikeArea), cacheDir);
+
 		int linkCount = 0;
 
 		for (Link link : network.getLinks().values()) {
@@ -72,10 +83,8 @@ public class PrepareNetwork implements MATSimAppCommand {
 				continue;
 			}
 
-			isInsideArea = MGC.coord2Point(link.getFromNode().getCoord()).within(bikeArea) && MGC.coord2Point(link.getToNode().getCoord()).within(bikeArea);
-
 			//if inside shp add bike as allowed mode
-			if (isInsideArea) {
+			if (inArea.containsKey(link.getId())) {
 				Set<String> allowedModes = new HashSet<>();
 				allowedModes.add(TransportMode.bike);
 				allowedModes.addAll(link.getAllowedModes());
@@ -78,8 +78,11 @@ public final class PlanAssignmentProblem implements Iterable<PlanPerson> {
 
 	/**
 	 * Iterative pre optimization using change plan exp beta logic.
+	 * The observed counts are only computed once, afterward only the contributions of persons that changed their plan are updated.
+	 *
+	 * @return statistics of each iteration
 	 */
-	public void iterate(int n, double prob, double beta, double w) {
+	public List<IterationStats> iterate(int n, double prob, double beta, double w) {
 
 		ScoreCalculator calc = new ScoreCalculator();
 		calc.resetWorkingSolution(this);
@@ -94,9 +97,13 @@ public final class PlanAssignmentProblem implements Iterable<PlanPerson> {
 		double best = score.score().doubleValue();
 		int noBest = 0;
 
+		List<IterationStats> stats = new ArrayList<>();
+
+		// new plan index of all persons, changes are applied after each iteration
+		int[] selected = new int[persons.size()];
+
 		for (int i = 0; i < n; i++) {
 
-			calc.resetWorkingSolution(this);
 			score = calc.calculateScore();
 
 			if (i % 100 == 0)
@@ -118,14 +125,38 @@ public final class PlanAssignmentProblem implements Iterable<PlanPerson> {
 			double p = prob - step * i;
 			double b = beta - (beta / n) * i;
 
-			for (PlanPerson person : persons) {
+			// all persons choose based on the counts at the start of the iteration
+			int replanned = 0;
+			for (int j = 0; j < persons.size(); j++) {
+				PlanPerson person = persons.get(j);
+				selected[j] = person.getK();
 
 				if (rnd.nextDouble() < p) {
 					person.setScore(calc);
-					person.setK(person.changePlanExpBeta(b, w, rnd));
+					selected[j] = person.changePlanExpBeta(b, w, rnd);
+					replanned++;
 				}
 			}
+
+			int changed = 0;
+			for (int j = 0; j < persons.size(); j++) {
+				PlanPerson person = persons.get(j);
+				if (selected[j] != person.getK()) {
+					calc.beforeVariableChanged(person, "k");
+					person.setK(selected[j]);
+					calc.afterVariableChanged(person, "k");
+					changed++;
+				}
+			}
+
+			stats.add(new IterationStats(i, score.score().doubleValue(), replanned, changed));
 		}
+
+		// Remove accumulated floating point errors of the incremental updates
+		calc.resetWorkingSolution(this);
+		score = calc.calculateScore();
+
+		return stats;
 	}
 
 	/**
@@ -142,4 +173,14 @@ public final class PlanAssignmentProblem implements Iterable<PlanPerson> {
 		}
 	}
 
+	/**
+	 * Statistics of one iteration of the pre optimization.
+	 *
+	 * @param score     score at the start of the iteration
+	 * @param replanned number of persons, which were allowed to change their plan
+	 * @param changed   number of persons, which selected another plan
+	 */
+	public record IterationStats(int iteration, double score, int replanned, int changed) {
+	}
+
 }
@@ -127,7 +127,8 @@ public class RunCountOptimization implements MATSimAppCommand {
 			case SYMMETRIC_PERCENTAGE_ERROR -> 300;
 		};
 
-		problem.iterate(5000, 0.5, beta, 0.01);
+		List<PlanAssignmentProblem.IterationStats> stats = problem.iterate(5000, 0.5, beta, 0.01);
+		log.info("Pre optimization finished after {} iterations with score: {}", stats.size(), problem.getScore());
 
 		PlanAssignmentProblem solution = solve(problem);
 
@@ -12,13 +12,15 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.application.MATSimAppCommand;
 import org.matsim.application.options.CsvOptions;
-import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.io.StreamingPopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.prepare.MexicoCityUtils;
 import picocli.CommandLine;
 
 import java.nio.file.Path;
-import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.ArrayList;
+import java.util.List;
 
 @CommandLine.Command(name = "select-plans-idx", description = "Select plan index as specified from input. " +
 	"If noPlans > maxK this class will delete plans (based on their score) until maxK is met.")
@@ -47,7 +49,7 @@ public class SelectPlansFromIndex implements MATSimAppCommand {
 	@Override
 	public Integer call() throws Exception {
 
-		Population population = PopulationUtils.readPopulation(input.toString());
+		Population population = MexicoCityUtils.readPopulation(input);
 		Object2IntMap<Id<Person>> idx = new Object2IntOpenHashMap<>();
 		try (CSVParser parser = csvOpt.createParser(csv)) {
 			for (CSVRecord row : parser) {
@@ -55,29 +57,36 @@ public class SelectPlansFromIndex implements MATSimAppCommand {
 			}
 		}
 
-		Population experienced = null;
+		// index of the best experienced plan, for all persons, who are not present in the csv
+		Object2IntMap<Id<Person>> experienced = null;
 
 		if (MexicoCityUtils.isDefined(experiencedPlansPath)) {
-			experienced = PopulationUtils.readPopulation(experiencedPlansPath.toString());
 			log.info("Keeping plan with best score for all persons, who are not present in input csv file.");
+
+			// experienced plans are streamed, only the selected index is kept in memory
+			Object2IntMap<Id<Person>> best = new Object2IntOpenHashMap<>();
+			StreamingPopulationReader reader = new StreamingPopulationReader(ScenarioUtils.createScenario(ConfigUtils.createConfig()));
+			reader.addAlgorithm(p -> {
+				if (!idx.containsKey(p.getId()))
+					best.put(p.getId(), selectBestScore(p.getPlans(), 0));
+			});
+			reader.readFile(experiencedPlansPath.toString());
+			experienced = best;
 		}
 
-		Set<Id<Person>> toRemove = new HashSet<>();
+		List<Id<Person>> toRemove = new ArrayList<>();
 
 		int count = 0;
 
 		for (Person person : population.getPersons().values()) {
 
-			List<? extends Plan> plans = person.getPlans();
-			Set<Plan> removePlans = new HashSet<>();
-
 			//for all persons which are included in csv:
 			// set "optimal" plan from counts opt csv file as selected and delete all other plans for this person
 			// will be 0 if no value is present
-			AtomicReference<Integer> planIndex = new AtomicReference<>(idx.getInt(person.getId()));
+			int planIndex = idx.getInt(person.getId());
 
 //			planIndex = -1 -> for commercial traffic, not needed here
-			if (planIndex.get() == -1) {
+			if (planIndex == -1) {
 				toRemove.add(person.getId());
 				continue;
 			}
@@ -85,42 +94,55 @@ public class SelectPlansFromIndex implements MATSimAppCommand {
 //			for all other persons:
 //			set "optimal" plan based on score of experienced plans.
 //			Therefore, each of the experienced plans should have a score in order to have a bigger plan pool -sme0224
-			if (!idx.containsKey(person.getId()) && experienced != null) {
-
-				List<? extends Plan> expPlans = experienced.getPersons().get(person.getId()).getPlans();
-
-				List<? extends Plan> filtered = new ArrayList<>(expPlans
-					.stream()
-					.filter(e -> e.getScore() != null).toList());
-
-				AtomicReference<Double> maxScore = new AtomicReference<>(0.);
-
-				filtered.forEach(p -> {
-					if (p.getScore() >= maxScore.get()) {
-						maxScore.set(p.getScore());
-						planIndex.set(expPlans.indexOf(p));
-					}
-				});
+			if (experienced != null && !idx.containsKey(person.getId())) {
+				planIndex = experienced.getInt(person.getId());
 				count++;
-
 			}
 
-			for (int i = 0; i < plans.size(); i++) {
-				if (i == planIndex.get()) {
-					person.setSelectedPlan(plans.get(i));
-				} else
-					removePlans.add(plans.get(i));
-			}
-			removePlans.forEach(person::removePlan);
+			selectPlan(person, planIndex);
 		}
 
 		toRemove.forEach(population::removePerson);
 
-		PopulationUtils.writePopulation(population, output.toString());
+		MexicoCityUtils.writePopulation(population, output);
 
 		log.info("For {} persons the optimal plan according to count optimization was chosen. For those agents, all other plans were deleted.", population.getPersons().size() - count);
 		log.info("For {} persons the optimal plan according to plan scores was chosen. For those agents, all other plans were deleted.", count);
 
 		return 0;
 	}
+
+	/**
+	 * Index of the last plan with the highest non-negative score, or the default if there is none.
+	 */
+	private static int selectBestScore(List<? extends Plan> plans, int defaultIndex) {
+		int planIndex = defaultIndex;
+		double maxScore = 0;
+		for (int i = 0; i < plans.size(); i++) {
+			Double score = plans.get(i).getScore();
+			if (score != null && score >= maxScore) {
+				maxScore = score;
+				planIndex = i;
+			}
+		}
+
+		return planIndex;
+	}
+
+	/**
+	 * Select the plan at the index and remove all others. If the index is out of range, all plans are removed.
+	 */
+	private static void selectPlan(Person person, int planIndex) {
+		List<? extends Plan> plans = person.getPlans();
+		if (planIndex < plans.size()) {
+			person.setSelectedPlan(plans.get(planIndex));
+		}
+
+		// removing from the back avoids shifting the remaining plans
+		for (int i = plans.size() - 1; i >= 0; i--) {
+			if (i != planIndex) {
+				person.removePlan(plans.get(i));
+			}
+		}
+	}
 }
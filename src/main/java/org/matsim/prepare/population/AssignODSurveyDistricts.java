@@ -9,8 +9,8 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.application.MATSimAppCommand;
 import org.matsim.application.options.ShpOptions;
 import org.matsim.core.population.PopulationUtils;
-import org.matsim.core.utils.geometry.geotools.MGC;
 import org.matsim.prepare.MexicoCityUtils;
+import org.matsim.prepare.ZoneIndex;
 import org.opengis.feature.simple.SimpleFeature;
 import picocli.CommandLine;
 import java.nio.file.Path;
@@ -53,15 +53,22 @@ public class AssignODSurveyDistricts implements MATSimAppCommand {
 	final void assignDistricts() {
 		List<SimpleFeature> features = shp.readFeatures();
 
-		population.getPersons().values().stream().forEach(p -> {
+//		features are added in reverse order, so that the last matching district wins if districts overlap, as it always has been
+		ZoneIndex<String> districts = new ZoneIndex<>();
+		for (int i = features.size() - 1; i >= 0; i--) {
+			SimpleFeature f = features.get(i);
+			districts.add((Geometry) f.getDefaultGeometry(), f.getAttribute("Distrito").toString());
+		}
+
+//		each person is only modified by one thread, so the result does not depend on the order of processing
+		population.getPersons().values().parallelStream().forEach(p -> {
 			Coord homeCoord = new Coord(Double.parseDouble(p.getAttributes().getAttribute(MexicoCityUtils.HOME_X).toString()),
 				Double.parseDouble(p.getAttributes().getAttribute(MexicoCityUtils.HOME_Y).toString()));
 
-			features.stream().forEach(f -> {
-				if (MGC.coord2Point(homeCoord).within((Geometry) f.getDefaultGeometry())) {
-					p.getAttributes().putAttribute(MexicoCityUtils.DISTR, f.getAttribute("Distrito").toString());
-				}
-			});
+			String district = districts.query(homeCoord);
+			if (district != null) {
+				p.getAttributes().putAttribute(MexicoCityUtils.DISTR, district);
+			}
 		});
 
 //		collect all persons for whom no distr could be assigned and delete them
@@ -0,0 +1,179 @@
+package org.matsim.prepare.population;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.*;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Reads populations written by {@link BinaryPopulationWriter} into an existing population.
+ */
+public final class BinaryPopulationReader {
+
+	private final Population population;
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+
+	/**
+	 * Read positions in the activity, leg and attribute tables.
+	 */
+	private int act;
+	private int leg;
+	private int attr;
+
+	public BinaryPopulationReader(Population population) {
+		this.population = population;
+	}
+
+	/**
+	 * Read the population from a file. Persons are added to the population given in the constructor.
+	 */
+	public void read(Path path) {
+		PopulationColumns columns = new PopulationColumns();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(IOUtils.getFileUrl(path.toString()))))) {
+			columns.read(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		act = 0;
+		leg = 0;
+		attr = 0;
+
+		readAttributes(columns, population.getAttributes(), columns.populationAttributes);
+
+		PopulationFactory f = population.getFactory();
+
+		int plan = 0;
+		int el = 0;
+		for (int i = 0; i < columns.personIds.size(); i++) {
+			Person person = f.createPerson(Id.createPersonId(columns.string(columns.personIds.getInt(i))));
+			readAttributes(columns, person.getAttributes(), columns.personAttributes.getInt(i));
+
+			for (int j = 0; j < columns.personPlans.getInt(i); j++, plan++) {
+				Plan p = f.createPlan();
+				if (columns.planHasScore.getByte(plan) == 1)
+					p.setScore(columns.planScores.getDouble(plan));
+
+				p.setType(columns.string(columns.planTypes.getInt(plan)));
+				readAttributes(columns, p.getAttributes(), columns.planAttributes.getInt(plan));
+
+				for (int k = 0; k < columns.planElements.getInt(plan); k++, el++) {
+					PlanElement e = columns.elementTypes.getByte(el) == PopulationColumns.ACTIVITY ? readActivity(columns, f) : readLeg(columns, f);
+					readAttributes(columns, e.getAttributes(), columns.elementAttributes.getInt(el));
+
+					if (e instanceof Activity a)
+						p.addActivity(a);
+					else
+						p.addLeg((Leg) e);
+				}
+
+				person.addPlan(p);
+			}
+
+			int selected = columns.personSelectedPlans.getInt(i);
+			if (selected >= 0)
+				person.setSelectedPlan(person.getPlans().get(selected));
+
+			population.addPerson(person);
+		}
+	}
+
+	private Activity readActivity(PopulationColumns columns, PopulationFactory f) {
+		Activity a = f.createActivityFromLinkId(columns.string(columns.actTypes.getInt(act)), id(columns, columns.actLinks.getInt(act), Link.class));
+
+		double x = columns.actX.getDouble(act);
+		double y = columns.actY.getDouble(act);
+		double z = columns.actZ.getDouble(act);
+		if (!Double.isNaN(x))
+			a.setCoord(Double.isNaN(z) ? new Coord(x, y) : new Coord(x, y, z));
+
+		a.setFacilityId(id(columns, columns.actFacilities.getInt(act), ActivityFacility.class));
+
+		double time = columns.actStartTimes.getDouble(act);
+		if (!Double.isNaN(time))
+			a.setStartTime(time);
+
+		time = columns.actEndTimes.getDouble(act);
+		if (!Double.isNaN(time))
+			a.setEndTime(time);
+
+		time = columns.actDurations.getDouble(act);
+		if (!Double.isNaN(time))
+			a.setMaximumDuration(time);
+
+		act++;
+		return a;
+	}
+
+	private Leg readLeg(PopulationColumns columns, PopulationFactory f) {
+		Leg l = f.createLeg(columns.string(columns.legModes.getInt(leg)));
+		l.setRoutingMode(columns.string(columns.legRoutingModes.getInt(leg)));
+
+		double time = columns.legDepartureTimes.getDouble(leg);
+		if (!Double.isNaN(time))
+			l.setDepartureTime(time);
+
+		time = columns.legTravelTimes.getDouble(leg);
+		if (!Double.isNaN(time))
+			l.setTravelTime(time);
+
+		String type = columns.string(columns.routeTypes.getInt(leg));
+		if (type != null) {
+			RouteFactories factories = f.getRouteFactories();
+			Route route = factories.createRoute(factories.getRouteClassForType(type),
+				id(columns, columns.routeStartLinks.getInt(leg), Link.class), id(columns, columns.routeEndLinks.getInt(leg), Link.class));
+
+			String description = columns.string(columns.routeDescriptions.getInt(leg));
+			if (description != null)
+				route.setRouteDescription(description);
+
+			time = columns.routeTravelTimes.getDouble(leg);
+			if (!Double.isNaN(time))
+				route.setTravelTime(time);
+
+			route.setDistance(columns.routeDistances.getDouble(leg));
+
+			if (route instanceof NetworkRoute r)
+				r.setVehicleId(id(columns, columns.routeVehicles.getInt(leg), Vehicle.class));
+
+			l.setRoute(route);
+		}
+
+		leg++;
+		return l;
+	}
+
+	private void readAttributes(PopulationColumns columns, Attributes attributes, int n) {
+		for (int i = 0; i < n; i++, attr++) {
+			long bits = columns.attrValues.getLong(attr);
+			Object value = switch (columns.attrTypes.getByte(attr)) {
+				case PopulationColumns.STRING -> columns.string((int) bits);
+				case PopulationColumns.DOUBLE -> Double.longBitsToDouble(bits);
+				case PopulationColumns.INTEGER -> (int) bits;
+				case PopulationColumns.LONG -> bits;
+				case PopulationColumns.BOOLEAN -> bits == 1;
+				case PopulationColumns.OBJECT -> converter.convert(columns.string(columns.attrClasses.getInt(attr)), columns.string((int) bits));
+				default -> throw new IllegalStateException("Unknown attribute type: " + columns.attrTypes.getByte(attr));
+			};
+
+			attributes.putAttribute(columns.string(columns.attrKeys.getInt(attr)), value);
+		}
+	}
+
+	private static <T> Id<T> id(PopulationColumns columns, int idx, Class<T> type) {
+		return idx == PopulationColumns.NONE ? null : Id.create(columns.string(idx), type);
+	}
+}
@@ -0,0 +1,179 @@
+package org.matsim.prepare.population;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.*;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Writes a population in a columnar binary format, which is much faster to write and read than the xml format.
+ * The file contains everything the xml writer writes, i.e. it can be converted to and from xml without losing information.
+ * Files ending with .gz are compressed.
+ *
+ * @see BinaryPopulationReader
+ */
+public final class BinaryPopulationWriter {
+
+	private final Population population;
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+
+	public BinaryPopulationWriter(Population population) {
+		this.population = population;
+	}
+
+	private static int id(PopulationColumns columns, Id<?> id) {
+		return id == null ? PopulationColumns.NONE : columns.string(id.toString());
+	}
+
+	private static double time(OptionalTime time) {
+		return time.isDefined() ? time.seconds() : Double.NaN;
+	}
+
+	/**
+	 * Write the population to a file.
+	 */
+	public void write(Path path) {
+		PopulationColumns columns = new PopulationColumns();
+		columns.populationAttributes = addAttributes(columns, population.getAttributes());
+
+		for (Person person : population.getPersons().values()) {
+			addPerson(columns, person);
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(path.toString()), false)))) {
+			columns.write(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void addPerson(PopulationColumns columns, Person person) {
+		columns.personIds.add(id(columns, person.getId()));
+		columns.personAttributes.add(addAttributes(columns, person.getAttributes()));
+		columns.personPlans.add(person.getPlans().size());
+		columns.personSelectedPlans.add(person.getPlans().indexOf(person.getSelectedPlan()));
+
+		for (Plan plan : person.getPlans()) {
+			columns.planScores.add(plan.getScore() == null ? Double.NaN : plan.getScore());
+			columns.planHasScore.add((byte) (plan.getScore() == null ? 0 : 1));
+			columns.planTypes.add(columns.string(plan.getType()));
+			columns.planElements.add(plan.getPlanElements().size());
+			columns.planAttributes.add(addAttributes(columns, plan.getAttributes()));
+
+			for (PlanElement el : plan.getPlanElements()) {
+				if (el instanceof Activity act)
+					addActivity(columns, act);
+				else if (el instanceof Leg leg)
+					addLeg(columns, leg);
+				else
+					throw new IllegalArgumentException("Unknown plan element: " + el);
+
+				columns.elementAttributes.add(addAttributes(columns, el.getAttributes()));
+			}
+		}
+	}
+
+	private void addActivity(PopulationColumns columns, Activity act) {
+		columns.elementTypes.add(PopulationColumns.ACTIVITY);
+		columns.actTypes.add(columns.string(act.getType()));
+
+		Coord coord = act.getCoord();
+		columns.actX.add(coord == null ? Double.NaN : coord.getX());
+		columns.actY.add(coord == null ? Double.NaN : coord.getY());
+		columns.actZ.add(coord == null || !coord.hasZ() ? Double.NaN : coord.getZ());
+
+		columns.actLinks.add(id(columns, act.getLinkId()));
+		columns.actFacilities.add(id(columns, act.getFacilityId()));
+		columns.actStartTimes.add(time(act.getStartTime()));
+		columns.actEndTimes.add(time(act.getEndTime()));
+		columns.actDurations.add(time(act.getMaximumDuration()));
+	}
+
+	private void addLeg(PopulationColumns columns, Leg leg) {
+		columns.elementTypes.add(PopulationColumns.LEG);
+		columns.legModes.add(columns.string(leg.getMode()));
+		columns.legRoutingModes.add(columns.string(leg.getRoutingMode()));
+		columns.legDepartureTimes.add(time(leg.getDepartureTime()));
+		columns.legTravelTimes.add(time(leg.getTravelTime()));
+
+		Route route = leg.getRoute();
+		if (route == null) {
+			columns.routeTypes.add(PopulationColumns.NONE);
+			columns.routeStartLinks.add(PopulationColumns.NONE);
+			columns.routeEndLinks.add(PopulationColumns.NONE);
+			columns.routeDescriptions.add(PopulationColumns.NONE);
+			columns.routeVehicles.add(PopulationColumns.NONE);
+			columns.routeTravelTimes.add(Double.NaN);
+			columns.routeDistances.add(Double.NaN);
+			return;
+		}
+
+		columns.routeTypes.add(columns.string(route.getRouteType()));
+		columns.routeStartLinks.add(id(columns, route.getStartLinkId()));
+		columns.routeEndLinks.add(id(columns, route.getEndLinkId()));
+		columns.routeDescriptions.add(columns.string(route.getRouteDescription()));
+		columns.routeVehicles.add(route instanceof NetworkRoute r ? id(columns, r.getVehicleId()) : PopulationColumns.NONE);
+		columns.routeTravelTimes.add(time(route.getTravelTime()));
+		columns.routeDistances.add(route.getDistance());
+	}
+
+	/**
+	 * Add all attributes to the columns. Values without converter are skipped, like in the xml writer.
+	 *
+	 * @return number of added attributes
+	 */
+	private int addAttributes(PopulationColumns columns, Attributes attributes) {
+		int n = 0;
+		for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+			Object value = e.getValue();
+
+			byte type;
+			int cls = PopulationColumns.NONE;
+			long bits;
+			if (value instanceof String s) {
+				type = PopulationColumns.STRING;
+				bits = columns.string(s);
+			} else if (value instanceof Double d) {
+				type = PopulationColumns.DOUBLE;
+				bits = Double.doubleToRawLongBits(d);
+			} else if (value instanceof Integer i) {
+				type = PopulationColumns.INTEGER;
+				bits = i;
+			} else if (value instanceof Long l) {
+				type = PopulationColumns.LONG;
+				bits = l;
+			} else if (value instanceof Boolean b) {
+				type = PopulationColumns.BOOLEAN;
+				bits = b ? 1 : 0;
+			} else {
+				// the converter logs a warning if there is no converter for this type
+				String s = converter.convertToString(value);
+				if (s == null)
+					continue;
+
+				type = PopulationColumns.OBJECT;
+				cls = columns.string(value.getClass().getName());
+				bits = columns.string(s);
+			}
+
+			columns.attrKeys.add(columns.string(e.getKey()));
+			columns.attrTypes.add(type);
+			columns.attrClasses.add(cls);
+			columns.attrValues.add(bits);
+			n++;
+		}
+
+		return n;
+	}
+}
@@ -6,7 +6,6 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.application.MATSimAppCommand;
-import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.prepare.MexicoCityUtils;
 import picocli.CommandLine;
@@ -32,11 +31,11 @@ public class ChangeModeNames implements MATSimAppCommand {
 	@Override
 	public Integer call() throws Exception {
 
-		Population population = PopulationUtils.readPopulation(input.toString());
+		Population population = MexicoCityUtils.readPopulation(input);
 
 		changeNames(population);
 
-		PopulationUtils.writePopulation(population, output.toString());
+		MexicoCityUtils.writePopulation(population, output);
 		return 0;
 	}
 
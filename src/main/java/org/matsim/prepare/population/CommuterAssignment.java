@@ -7,6 +7,7 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.matsim.application.options.CsvOptions;
@@ -16,22 +17,29 @@ import org.opengis.feature.simple.SimpleFeature;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Helper class for commuter assignment.
+ * Destinations of each origin zone are stored in arrays together with their cumulative commuter numbers, so that a destination can be drawn by binary search.
+ * The remaining commuters are updated without locks, so that the assignment can be used by multiple threads.
  */
 public class CommuterAssignment {
 
 	private static final Logger log = LogManager.getLogger(CommuterAssignment.class);
 
-	private final Map<Long, SimpleFeature> zones;
+	/**
+	 * Destinations per origin zone. These are not modified and shared between copies.
+	 */
+	private final Long2ObjectMap<Destinations> destinations;
 
 	/**
-	 * Outgoing commuter from ars to ars.
+	 * Remaining outgoing commuters per origin zone, stored as double bits and addressed like the destinations.
 	 */
-	private final Long2ObjectMap<Long2DoubleMap> commuter;
+	private final Long2ObjectMap<AtomicLongArray> remaining;
 
 	private final CsvOptions csv = new CsvOptions(CSVFormat.Predefined.Default);
 	private final double sample;
@@ -39,19 +47,48 @@ public class CommuterAssignment {
 	public CommuterAssignment(Object2ObjectMap<String, SimpleFeature> zones, Path commuterPath, double sample) {
 		this.sample = sample;
 
-		// outgoing commuters
-		this.commuter = new Long2ObjectOpenHashMap<>();
-
 		Long2ObjectMap<SimpleFeature> zonesLong = new Long2ObjectOpenHashMap<>();
 		zones.entrySet().forEach(e -> zonesLong.put(Long.parseLong(e.getKey()), e.getValue()));
-		this.zones = zonesLong;
 
 		// read commuters
-		readCommuters(commuterPath);
+		Long2ObjectMap<Long2DoubleMap> commuter = readCommuters(commuterPath);
+
+		this.destinations = new Long2ObjectOpenHashMap<>();
+		this.remaining = new Long2ObjectOpenHashMap<>();
+
+		for (Long2ObjectMap.Entry<Long2DoubleMap> e : commuter.long2ObjectEntrySet()) {
+			Destinations d = new Destinations(e.getValue(), zonesLong);
+			if (d.ids.length == 0)
+				continue;
+
+			destinations.put(e.getLongKey(), d);
+			remaining.put(e.getLongKey(), d.createCounters());
+		}
+	}
+
+	private CommuterAssignment(CommuterAssignment other) {
+		this.sample = other.sample;
+		this.destinations = other.destinations;
+		this.remaining = new Long2ObjectOpenHashMap<>(other.remaining.size());
+		for (Long2ObjectMap.Entry<AtomicLongArray> e : other.remaining.long2ObjectEntrySet()) {
+			AtomicLongArray counters = e.getValue();
+			long[] values = new long[counters.length()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = counters.get(i);
+			}
+			this.remaining.put(e.getLongKey(), new AtomicLongArray(values));
+		}
+	}
 
+	/**
+	 * Create an independent copy with the same remaining commuters, without reading the commuter file again.
+	 */
+	public CommuterAssignment copy() {
+		return new CommuterAssignment(this);
 	}
 
-	private void readCommuters(Path commuterPath) {
+	private Long2ObjectMap<Long2DoubleMap> readCommuters(Path commuterPath) {
+		Long2ObjectMap<Long2DoubleMap> commuter = new Long2ObjectOpenHashMap<>();
 		try (CSVParser parser = csv.createParser(commuterPath)) {
 			for (CSVRecord row : parser) {
 				long from;
@@ -64,16 +101,22 @@ public class CommuterAssignment {
 				}
 
 				String n = row.get("n");
-				commuter.computeIfAbsent(from, k -> Long2DoubleMaps.synchronize(new Long2DoubleOpenHashMap()))
+				commuter.computeIfAbsent(from, k -> new Long2DoubleOpenHashMap())
 					.mergeDouble(to, Integer.parseInt(n), Double::sum);
 			}
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
+
+		return commuter;
 	}
 
 	/**
 	 * Select and return a commute target.
+	 * Destinations are drawn proportionally to their remaining number of commuters: a destination is drawn by binary search on the cumulative
+	 * initial commuters and accepted with the share of its commuters that remain. Exhausted destinations are therefore never accepted.
+	 * Destinations that are too far away or without a sampled location are excluded. If no destination was found after as many draws as there are destinations,
+	 * the remaining candidates are tried in random order, so that every destination is tried at most once.
 	 *
 	 * @param f   sampler producing target locations
 	 * @param zoneId origin zone
@@ -81,59 +124,95 @@ public class CommuterAssignment {
 	public ActivityFacility selectTarget(SplittableRandom rnd, long zoneId, double dist, Point refPoint, Sampler f) {
 
 		// Commute in same zone
-		Long2DoubleMap comms = commuter.get(zoneId);
-		if (!commuter.containsKey(zoneId) || comms.isEmpty())
+		Destinations d = destinations.get(zoneId);
+		if (d == null)
 			return null;
 
-		LongList entries;
-		synchronized (comms) {
-			entries = new LongArrayList(comms.keySet());
-		}
+		AtomicLongArray counters = remaining.get(zoneId);
+		Envelope ref = refPoint.getEnvelopeInternal();
 
-		while (!entries.isEmpty()) {
-			long key = entries.removeLong(rnd.nextInt(entries.size()));
+		int n = d.ids.length;
 
-			SimpleFeature ft = zones.get(key);
+		// only allocated if the first candidate fails
+		BitSet tried = null;
 
-			// TODO: should maybe not be allowed
-			if (ft == null)
+		for (int draw = 0; draw < n; draw++) {
+			int idx = d.sample(rnd);
+			if (tried != null && tried.get(idx))
 				continue;
 
-			Geometry zone = (Geometry) ft.getDefaultGeometry();
-
-			// Zones too far away don't need to be considered
-			if (zone.distance(refPoint) > dist * 1.2)
+			// rejection by the remaining share, which results in a draw proportional to the remaining commuters
+			double left = Double.longBitsToDouble(counters.get(idx));
+			if (left <= 0 || rnd.nextDouble() * d.initial[idx] >= left)
 				continue;
 
-			ActivityFacility res = f.sample(zone);
+			if (tried == null)
+				tried = new BitSet(n);
 
-			if (res != null) {
-				synchronized (comms) {
-					double old = comms.get(key);
+			tried.set(idx);
 
-					// Check if other thread reduced the counter while computing
-					// result needs to be thrown away
-					if (old <= 0) {
-						comms.remove(key);
-						continue;
-					}
+			ActivityFacility res = tryDestination(d, counters, idx, dist, ref, refPoint, f);
+			if (res != null)
+				return res;
+		}
 
-					// subtract available commuters
-					double newValue = old - (1 / sample);
-					comms.put(key, newValue);
+		// fall back to all untried destinations with remaining commuters, in random order
+		int[] candidates = new int[n];
+		int size = 0;
+		for (int i = 0; i < n; i++) {
+			if ((tried == null || !tried.get(i)) && Double.longBitsToDouble(counters.get(i)) > 0)
+				candidates[size++] = i;
+		}
 
-					if (newValue <= 0)
-						comms.remove(key);
-				}
+		for (int i = 0; i < size; i++) {
+			int j = i + rnd.nextInt(size - i);
+			int idx = candidates[j];
+			candidates[j] = candidates[i];
 
+			ActivityFacility res = tryDestination(d, counters, idx, dist, ref, refPoint, f);
+			if (res != null)
 				return res;
-			}
 		}
 
+		return null;
+	}
+
+	/**
+	 * Sample a location in a destination and use up one commuter.
+	 *
+	 * @return the location, or null if the destination is not suitable
+	 */
+	private ActivityFacility tryDestination(Destinations d, AtomicLongArray counters, int idx, double dist, Envelope ref, Point refPoint, Sampler f) {
+		// Zones too far away don't need to be considered, the envelope distance is a cheap lower bound
+		if (d.envelopes[idx].distance(ref) > dist * 1.2 || d.zones[idx].distance(refPoint) > dist * 1.2)
+			return null;
+
+		ActivityFacility res = f.sample(d.zones[idx]);
+
+		if (res != null && decrement(counters, idx))
+			return res;
 
 		return null;
 	}
 
+	/**
+	 * Subtract one commuter from the counter.
+	 *
+	 * @return false if another thread has used up the commuters in the meantime, the result needs to be thrown away
+	 */
+	private boolean decrement(AtomicLongArray counters, int idx) {
+		while (true) {
+			long bits = counters.get(idx);
+			double old = Double.longBitsToDouble(bits);
+			if (old <= 0)
+				return false;
+
+			// subtract available commuters
+			if (counters.compareAndSet(idx, bits, Double.doubleToRawLongBits(old - (1 / sample))))
+				return true;
+		}
+	}
+
 	/**
 	 * Sample locations from specific zone.
 	 */
@@ -143,4 +222,63 @@ public class CommuterAssignment {
 
 	}
 
+	/**
+	 * Destination zones of one origin with cumulative number of commuters.
+	 */
+	private static final class Destinations {
+
+		private final long[] ids;
+		private final Geometry[] zones;
+		private final Envelope[] envelopes;
+		private final double[] initial;
+		private final double[] cumulative;
+
+		private Destinations(Long2DoubleMap commuters, Long2ObjectMap<SimpleFeature> zones) {
+			// sorted, so that the order does not depend on the hash map
+			long[] keys = commuters.keySet().toLongArray();
+			Arrays.sort(keys);
+
+			LongList valid = new LongArrayList();
+			for (long key : keys) {
+				// TODO: should maybe not be allowed
+				if (zones.containsKey(key) && commuters.get(key) > 0)
+					valid.add(key);
+			}
+
+			this.ids = valid.toLongArray();
+			this.zones = new Geometry[ids.length];
+			this.envelopes = new Envelope[ids.length];
+			this.initial = new double[ids.length];
+			this.cumulative = new double[ids.length];
+
+			double sum = 0;
+			for (int i = 0; i < ids.length; i++) {
+				this.zones[i] = (Geometry) zones.get(ids[i]).getDefaultGeometry();
+				this.envelopes[i] = this.zones[i].getEnvelopeInternal();
+				this.initial[i] = commuters.get(ids[i]);
+				sum += initial[i];
+				this.cumulative[i] = sum;
+			}
+		}
+
+		private AtomicLongArray createCounters() {
+			long[] bits = new long[initial.length];
+			for (int i = 0; i < bits.length; i++) {
+				bits[i] = Double.doubleToRawLongBits(initial[i]);
+			}
+			return new AtomicLongArray(bits);
+		}
+
+		/**
+		 * Draw a destination index proportional to the initial number of commuters.
+		 */
+		private int sample(SplittableRandom rnd) {
+			double total = cumulative[cumulative.length - 1];
+			int idx = Arrays.binarySearch(cumulative, rnd.nextDouble() * total);
+			if (idx < 0)
+				idx = -idx - 1;
+
+			return Math.min(idx, cumulative.length - 1);
+		}
+	}
 }
@@ -6,16 +6,13 @@ import org.apache.commons.csv.CSVRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.locationtech.jts.geom.Geometry;
-import org.matsim.api.core.v01.Coord;
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Network;
-import org.matsim.api.core.v01.network.Node;
+import org.locationtech.jts.geom.Point;
 import org.matsim.application.MATSimAppCommand;
 import org.matsim.application.options.CsvOptions;
 import org.matsim.application.options.ShpOptions;
-import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.prepare.MexicoCityUtils;
+import org.matsim.prepare.ZoneIndex;
 import org.opengis.feature.simple.SimpleFeature;
 import picocli.CommandLine;
 
@@ -24,7 +21,6 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.Map.Entry;
 
 @CommandLine.Command(
 	name = "create-commute-relations",
@@ -52,8 +48,6 @@ public class CreateCommuterRelations implements MATSimAppCommand {
 
 	private final Set<String> invalidDistricts = Set.of("888", "999");
 
-	private Network network = NetworkUtils.createNetwork();
-
 	public static void main(String[] args) {
 		new CreateCommuterRelations().execute(args);
 	}
@@ -76,75 +70,96 @@ public class CreateCommuterRelations implements MATSimAppCommand {
 
 		parseTravelSurvey();
 
-//		get centroids of muns and save them as network nodes
+		List<Municipality> muns = new ArrayList<>();
+		ZoneIndex<Municipality> index = new ZoneIndex<>();
 		for (SimpleFeature ft : zmvmShp.readFeatures()) {
-			Geometry geom = (Geometry) ft.getDefaultGeometry();
-
-			Node node = NetworkUtils.createNode(Id.createNodeId(ft.getAttribute("CVE_MUN1").toString()),
-				new Coord(geom.getCentroid().getX(), geom.getCentroid().getY()));
-
-			network.addNode(node);
+			Municipality mun = new Municipality(muns.size(), ft.getAttribute("CVE_MUN1").toString(), validGeometry((Geometry) ft.getDefaultGeometry()));
+			muns.add(mun);
+			index.add(mun.geometry, mun);
 		}
 
-//		find nearest mun for each dist
-		Map<String, Set<String>> mun2Distr = new HashMap<>();
-
+//		assign each dist to the mun it overlaps most
+		Map<String, Municipality> distr2Mun = new HashMap<>();
 		for (SimpleFeature ft : districtsShp.readFeatures()) {
 			String distrId = ft.getAttribute("Distrito").toString();
-			Geometry geometry = (Geometry) ft.getDefaultGeometry();
-
-			Node nearestNode = NetworkUtils.getNearestNode(network, new Coord(geometry.getCentroid().getX(), geometry.getCentroid().getY()));
+			Geometry geometry = validGeometry((Geometry) ft.getDefaultGeometry());
 
-			mun2Distr.putIfAbsent(nearestNode.getId().toString(), new HashSet<>());
-			mun2Distr.get(nearestNode.getId().toString()).add(distrId);
+			distr2Mun.put(distrId, findMunicipality(geometry, index, muns));
 		}
 
-		Map<Entry<String, String>, Integer> relations = countCommuteTrips(mun2Distr);
+		int[] relations = countCommuteTrips(distr2Mun, muns.size());
 
-		writeOutputData(relations);
-		log.info("{} municipality pairs have been written to {}.", relations.keySet().size(), output);
+		int n = writeOutputData(relations, muns);
+		log.info("{} municipality pairs have been written to {}.", n, output);
 
 		return 0;
 	}
 
-	private void writeOutputData(Map<Entry<String, String>, Integer> relations) throws IOException {
-		BufferedWriter writer = IOUtils.getBufferedWriter(output.toString());
+	private static Geometry validGeometry(Geometry geometry) {
+		return geometry.isValid() ? geometry : geometry.buffer(0);
+	}
 
-		writer.write("from,to,n");
+	/**
+	 * Find the municipality with the largest overlap. Districts outside all municipalities are assigned to the one with the nearest centroid.
+	 */
+	private static Municipality findMunicipality(Geometry district, ZoneIndex<Municipality> index, List<Municipality> muns) {
+		Municipality best = null;
+		double maxArea = 0;
+		for (Municipality mun : index.queryAll(district)) {
+			double area = mun.geometry.intersection(district).getArea();
+			if (area > maxArea) {
+				maxArea = area;
+				best = mun;
+			}
+		}
 
-		for (Entry<Entry<String, String>, Integer> e : relations.entrySet()) {
-			Entry<String, String> depArrPair = e.getKey();
+		if (best != null)
+			return best;
 
-			writer.newLine();
-			writer.write(depArrPair.getKey() + "," + depArrPair.getValue() + "," + e.getValue().toString());
+		Point centroid = district.getCentroid();
+		double minDist = Double.POSITIVE_INFINITY;
+		for (Municipality mun : muns) {
+			double dist = mun.geometry.getCentroid().distance(centroid);
+			if (dist < minDist) {
+				minDist = dist;
+				best = mun;
+			}
 		}
-		writer.close();
+
+		return best;
 	}
 
-	private Map<Entry<String, String>, Integer> countCommuteTrips(Map<String, Set<String>> mun2Distr) {
-		Map<Entry<String, String>, Integer> relations = new HashMap<>();
+	private int writeOutputData(int[] relations, List<Municipality> muns) throws IOException {
+		int n = 0;
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(output.toString())) {
+			writer.write("from,to,n");
 
-		for (TravelData e : commuteTrips.values()) {
-			String depMun = null;
-			String arrMun = null;
-			for (Entry<String, Set<String>> entry : mun2Distr.entrySet()) {
+			for (int i = 0; i < relations.length; i++) {
+				if (relations[i] == 0)
+					continue;
 
-				Set<String> v = entry.getValue();
-				if (v.contains(e.arrivalDistrict)) {
-					arrMun = entry.getKey();
-				}
-				if (v.contains(e.departureDistrict)) {
-					depMun = entry.getKey();
-				}
+				writer.newLine();
+				writer.write(muns.get(i / muns.size()).id + "," + muns.get(i % muns.size()).id + "," + relations[i]);
+				n++;
+			}
+		}
 
-				if (arrMun != null && depMun != null && !arrMun.equals(depMun)) {
-//					trips from mun to same mun are ignored -> no commute
-					Entry<String, String> relation = Map.entry(depMun, arrMun);
+		return n;
+	}
 
-					relations.putIfAbsent(relation, 0);
-					relations.replace(relation, relations.get(relation), relations.get(relation) + e.weight);
-					break;
-				}
+	/**
+	 * Sum of trip weights from municipality to municipality, addressed by from * number of municipalities + to.
+	 */
+	private int[] countCommuteTrips(Map<String, Municipality> distr2Mun, int size) {
+		int[] relations = new int[size * size];
+
+		for (TravelData e : commuteTrips.values()) {
+			Municipality depMun = distr2Mun.get(e.departureDistrict);
+			Municipality arrMun = distr2Mun.get(e.arrivalDistrict);
+
+//			trips from mun to same mun are ignored -> no commute
+			if (depMun != null && arrMun != null && depMun != arrMun) {
+				relations[depMun.idx * size + arrMun.idx] += e.weight;
 			}
 		}
 		return relations;
@@ -175,6 +190,10 @@ public class CreateCommuterRelations implements MATSimAppCommand {
 		}
 	}
 
+	private record Municipality(int idx, String id, Geometry geometry) {
+
+	}
+
 	private record TravelData(String departureDistrict, String arrivalDistrict, int weight) {
 
 	}
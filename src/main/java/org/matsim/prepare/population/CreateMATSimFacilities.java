@@ -10,19 +10,14 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.application.MATSimAppCommand;
 import org.matsim.application.options.ShpOptions;
-import org.matsim.core.config.groups.NetworkConfigGroup;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
-import org.matsim.core.network.filter.NetworkFilterManager;
 import org.matsim.facilities.*;
+import org.matsim.prepare.network.LinkIndex;
 import org.opengis.feature.simple.SimpleFeature;
 import picocli.CommandLine;
 
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import static org.matsim.prepare.MexicoCityUtils.roundCoord;
 
@@ -71,20 +66,25 @@ public class CreateMATSimFacilities implements MATSimAppCommand {
 		}
 
 		Network completeNetwork = NetworkUtils.readNetwork(this.network.toString());
-		TransportModeNetworkFilter filter = new TransportModeNetworkFilter(completeNetwork);
-		Network carOnlyNetwork = NetworkUtils.createNetwork();
-		filter.filter(carOnlyNetwork, Set.of(TransportMode.car));
 
-//		ignored link types are filtered out
-		NetworkFilterManager filterManager = new NetworkFilterManager(carOnlyNetwork, new NetworkConfigGroup());
-		filterManager.addLinkFilter(link -> !IGNORED_LINK_TYPES.contains(NetworkUtils.getType(link)));
-		Network filteredNetwork = filterManager.applyFilters();
+//		only car links are used, ignored link types are filtered out
+		LinkIndex index = new LinkIndex(completeNetwork, Set.of(TransportMode.car), link -> !IGNORED_LINK_TYPES.contains(NetworkUtils.getType(link)));
 
 		List<SimpleFeature> fts = shp.readFeatures();
 
-		Map<Id<Link>, Holder> data = new ConcurrentHashMap<>();
+//		the nearest links are searched in parallel, the aggregation is done afterwards in the order of the features
+		List<Link> links = fts.parallelStream()
+			.map(ft -> {
+				Point p = (Point) ft.getDefaultGeometry();
+				return index.getNearestLink(new Coord(p.getX(), p.getY()));
+			})
+			.toList();
 
-		fts.parallelStream().forEach(ft -> processFeature(ft, filteredNetwork, data));
+		Map<Id<Link>, Holder> data = new LinkedHashMap<>();
+		for (int i = 0; i < fts.size(); i++) {
+			if (links.get(i) != null)
+				processFeature(fts.get(i), links.get(i).getId(), data);
+		}
 
 		ActivityFacilities facilities = FacilitiesUtils.createActivityFacilities();
 
@@ -122,30 +122,15 @@ public class CreateMATSimFacilities implements MATSimAppCommand {
 	}
 
 	/**
-	 * Sample points and choose link with the nearest points. Aggregate everything so there is at most one facility per link.
+	 * Aggregate everything so there is at most one facility per link.
 	 */
-	private void processFeature(SimpleFeature ft, Network network, Map<Id<Link>, Holder> data) {
+	private void processFeature(SimpleFeature ft, Id<Link> link, Map<Id<Link>, Holder> data) {
 
 		// Actual id is the last part
 		String[] id = ft.getID().split("\\.");
 		Point p = (Point) ft.getDefaultGeometry();
 
-		List<Coord> coords = List.of(new Coord(p.getX(), p.getY()));
-		List<Id<Link>> links = coords.stream().map(coord -> NetworkUtils.getNearestLinkExactly(network, coord).getId()).toList();
-
-		Map<Id<Link>, Long> map = links.stream()
-			.collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
-
-		if (map.isEmpty())
-			return;
-
-		List<Map.Entry<Id<Link>, Long>> counts = map.entrySet().stream().sorted(Map.Entry.comparingByValue())
-			.toList();
-
-		// The "main" link of the facility
-		Id<Link> link = counts.get(counts.size() - 1).getKey();
-
-		Holder holder = data.computeIfAbsent(link, k -> new Holder(ConcurrentHashMap.newKeySet(), ConcurrentHashMap.newKeySet(), Collections.synchronizedList(new ArrayList<>())));
+		Holder holder = data.computeIfAbsent(link, k -> new Holder(new LinkedHashSet<>(), new LinkedHashSet<>(), new ArrayList<>()));
 
 //		cap id length, because with too many datapoints the facility id exceeds the allowed char count for csv files (is relevant for MATSim analysis like TripAnalysis)
 		if (holder.ids.size() <= 5) {
@@ -153,14 +138,7 @@ public class CreateMATSimFacilities implements MATSimAppCommand {
 		}
 
 		holder.activities.addAll(activities(ft));
-
-		// Search for the original drawn coordinate of the associated link
-		for (int i = 0; i < links.size(); i++) {
-			if (links.get(i).equals(link)) {
-				holder.coords.add(coords.get(i));
-				break;
-			}
-		}
+		holder.coords.add(new Coord(p.getX(), p.getY()));
 	}
 
 	private Set<String> activities(SimpleFeature ft) {
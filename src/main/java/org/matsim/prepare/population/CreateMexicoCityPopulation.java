@@ -4,6 +4,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
@@ -26,6 +28,7 @@ import picocli.CommandLine;
 
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
 /**
@@ -58,6 +61,9 @@ public class CreateMexicoCityPopulation implements MATSimAppCommand {
 	@CommandLine.Option(names = "--target-crs", description = "Target CRS", defaultValue = "EPSG:4485")
 	private String targetCrs;
 
+	@CommandLine.Option(names = "--threads", description = "Number of threads used to generate persons", defaultValue = "8")
+	private int threads;
+
 	private SplittableRandom rnd;
 
 	private Population population;
@@ -83,17 +89,37 @@ public class CreateMexicoCityPopulation implements MATSimAppCommand {
 			return 2;
 		}
 
-		log.info("Found {} manzanas", shp.readFeatures().size());
+		List<SimpleFeature> features = shp.readFeatures();
+		log.info("Found {} manzanas", features.size());
 
 		rnd = new SplittableRandom(0);
 
 		population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
 
 		//calc ageDistr + filter out manzanas with invalid data
-		calcAgeDistr();
+		calcAgeDistr(features);
+
+		// build the landuse index once before the workers start, they only read it afterward
+		if (landuse.getIndex(targetCrs) == null)
+			log.info("No landuse given, home coordinates are sampled uniformly within manzanas");
+
+		// seeds are drawn in manzana order, so the result does not depend on the number of threads
+		long[] seeds = rnd.longs(manzanas.size()).toArray();
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		List<List<PersonDraft>> drafts;
+		try {
+			drafts = pool.submit(() -> IntStream.range(0, manzanas.size()).parallel()
+				.mapToObj(i -> processManzana(manzanas.get(i), new SplittableRandom(seeds[i])))
+				.toList()
+			).get();
+		} finally {
+			pool.shutdown();
+		}
 
-		for (SimpleFeature ft : manzanas) {
-				processManzana(ft, ct);
+		// ids are drawn from the main random generator in manzana order, which keeps them deterministic
+		for (int i = 0; i < manzanas.size(); i++) {
+			createPersons(manzanas.get(i), drafts.get(i), ct);
 		}
 
 		log.info("Generated {} persons", population.getPersons().size());
@@ -101,12 +127,12 @@ public class CreateMexicoCityPopulation implements MATSimAppCommand {
 		PopulationUtils.sortPersons(population);
 
 		ProjectionUtils.putCRS(population, MexicoCityUtils.CRS);
-		PopulationUtils.writePopulation(population, output.toString());
+		MexicoCityUtils.writePopulation(population, output);
 
 		return 0;
 	}
 
-	private void calcAgeDistr() {
+	private void calcAgeDistr(List<SimpleFeature> features) {
 
 		List<Integer> valuesYoung = new ArrayList<>();
 		List<Integer> valuesMiddle = new ArrayList<>();
@@ -115,7 +141,7 @@ public class CreateMexicoCityPopulation implements MATSimAppCommand {
 		int sumMiddle = 0;
 		int sumOld = 0;
 
-		for (SimpleFeature ft : shp.readFeatures()) {
+		for (SimpleFeature ft : features) {
 
 			if (ft.getAttribute(noInhAttrName) != null && Integer.parseInt(ft.getAttribute(noInhAttrName).toString()) != 0) {
 				manzanas.add(ft);
@@ -144,7 +170,10 @@ public class CreateMexicoCityPopulation implements MATSimAppCommand {
 		}
 	}
 
-	private void processManzana(SimpleFeature ft, CoordinateTransformation ct) {
+	/**
+	 * Draw the attributes of all persons in a manzana. This is called concurrently and must only use the given random generator.
+	 */
+	private List<PersonDraft> processManzana(SimpleFeature ft, SplittableRandom rnd) {
 
 		String manzanaID = ft.getAttribute("CVEGEO").toString();
 
@@ -161,7 +190,7 @@ public class CreateMexicoCityPopulation implements MATSimAppCommand {
 
 		InputData inputData = new InputData(manzanaID, n, nYoung, nMiddle, nOld, nFem, nMasc, nEcoAct, nEcoNotAct, nAgeTwelveAndMore);
 
-		log.info("Processing {} with {} inhabitants", manzanaID, n);
+		log.debug("Processing {} with {} inhabitants", manzanaID, n);
 
 		ValidatedAndProcessedData validatedData = validateDataFields(inputData);
 
@@ -173,35 +202,53 @@ public class CreateMexicoCityPopulation implements MATSimAppCommand {
 				AgeGroup.OLD, validatedData.old
 		));
 
-		MultiPolygon geom = (MultiPolygon) ft.getDefaultGeometry();
-
-		PopulationFactory f = population.getFactory();
+		PreparedGeometry geom = PreparedGeometryFactory.prepare((MultiPolygon) ft.getDefaultGeometry());
 
 		var youngDist = new UniformAttributeDistribution<>(IntStream.range(0, 14).boxed().toList());
 		var middleDist = new UniformAttributeDistribution<>(IntStream.range(15, 64).boxed().toList());
 		var oldDist = new UniformAttributeDistribution<>(IntStream.range(65, 100).boxed().toList());
 
+		List<PersonDraft> drafts = new ArrayList<>();
+
 		//when sampling for 1pct scenario we are overestimating manzanas with nInh <= 100. keep in mind -sme1123
 		for (int i = 0; i < n * sample; i++) {
 
-			Person person = f.createPerson(generateId(population, "cdmx", rnd));
-			PersonUtils.setSex(person, sex.sample());
-			PopulationUtils.putSubpopulation(person, "person");
-
+			String sexValue = sex.sample();
 			AgeGroup group = ageGroup.sample();
 
+			int age = 0;
+			boolean employed = false;
 			if (group == AgeGroup.MIDDLE) {
-				PersonUtils.setAge(person, middleDist.sample());
-				PersonUtils.setEmployed(person, economicActivity.sample());
+				age = middleDist.sample();
+				employed = economicActivity.sample();
 			} else if (group == AgeGroup.YOUNG) {
-				PersonUtils.setAge(person, youngDist.sample());
-				PersonUtils.setEmployed(person, false);
+				age = youngDist.sample();
 			} else if (group == AgeGroup.OLD) {
-				PersonUtils.setAge(person, oldDist.sample());
-				PersonUtils.setEmployed(person, false);
+				age = oldDist.sample();
 			}
 
-			Coord coord = ct.transform(sampleHomeCoordinate(geom, targetCrs, landuse, rnd));
+			drafts.add(new PersonDraft(sexValue, age, employed, sampleHomeCoordinate(geom, targetCrs, landuse, rnd)));
+		}
+
+		return drafts;
+	}
+
+	/**
+	 * Create and add the persons of a manzana to the population.
+	 */
+	private void createPersons(SimpleFeature ft, List<PersonDraft> drafts, CoordinateTransformation ct) {
+
+		PopulationFactory f = population.getFactory();
+
+		for (PersonDraft draft : drafts) {
+
+			Person person = f.createPerson(generateId(population, "cdmx", rnd));
+			PersonUtils.setSex(person, draft.sex);
+			PopulationUtils.putSubpopulation(person, "person");
+			PersonUtils.setAge(person, draft.age);
+			PersonUtils.setEmployed(person, draft.employed);
+
+			Coord coord = ct.transform(draft.home);
 
 			person.getAttributes().putAttribute(MexicoCityUtils.HOME_X, coord.getX());
 			person.getAttributes().putAttribute(MexicoCityUtils.HOME_Y, coord.getY());
@@ -287,8 +334,16 @@ public class CreateMexicoCityPopulation implements MATSimAppCommand {
 	 * Samples a home coordinates from geometry and landuse (if provided).
 	 */
 	public static Coord sampleHomeCoordinate(MultiPolygon geometry, String crs, LanduseOptions landuse, SplittableRandom rnd) {
+		return sampleHomeCoordinate(PreparedGeometryFactory.prepare(geometry), crs, landuse, rnd);
+	}
+
+	/**
+	 * Samples a home coordinates from a prepared geometry and landuse (if provided).
+	 * Preparing the geometry once speeds up the containment checks, when sampling multiple coordinates from the same geometry.
+	 */
+	public static Coord sampleHomeCoordinate(PreparedGeometry geometry, String crs, LanduseOptions landuse, SplittableRandom rnd) {
 
-		Envelope bbox = geometry.getEnvelopeInternal();
+		Envelope bbox = geometry.getGeometry().getEnvelopeInternal();
 
 		int i = 0;
 		Coord coord;
@@ -318,6 +373,10 @@ public class CreateMexicoCityPopulation implements MATSimAppCommand {
 
 	}
 
+	private record PersonDraft(String sex, int age, boolean employed, Coord home) {
+
+	}
+
 	private record ValidatedAndProcessedData(String manzanaID, double young, double middle, double old, double quotaFem, double quotaMasc, double quotaEcoAct, double quotaEcoNotAct) {
 
 	}
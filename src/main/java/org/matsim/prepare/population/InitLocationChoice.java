@@ -18,7 +18,6 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.application.MATSimAppCommand;
 import org.matsim.application.options.ShpOptions;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.population.PersonUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.ParallelPersonAlgorithmUtils;
@@ -31,6 +30,7 @@ import org.matsim.facilities.ActivityFacility;
 import org.matsim.facilities.FacilitiesUtils;
 import org.matsim.facilities.MatsimFacilitiesReader;
 import org.matsim.prepare.MexicoCityUtils;
+import org.matsim.prepare.network.LinkIndex;
 import org.opengis.feature.simple.SimpleFeature;
 import picocli.CommandLine;
 
@@ -88,9 +88,15 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 
 	private Object2ObjectMap<String, SimpleFeature> zones;
 
-	private CommuterAssignment commuter;
+	/**
+	 * Commuter assignment for each of the k plans, the remaining commuters are tracked separately for each plan.
+	 */
+	private CommuterAssignment[] commuters;
 
-	private Network network;
+	/**
+	 * Car links, used to avoid activity locations next to links of ignored types.
+	 */
+	private LinkIndex linkIndex;
 
 	private ActivityFacilities facilities = FacilitiesUtils.createActivityFacilities();
 
@@ -100,6 +106,8 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 
 	private AtomicLong warning = new AtomicLong();
 
+	private AtomicLong skipped = new AtomicLong();
+
 	public static void main(String[] args) {
 		new InitLocationChoice().execute(args);
 	}
@@ -122,9 +130,7 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 		}
 
 		Network completeNetwork = NetworkUtils.readNetwork(networkPath.toString());
-		TransportModeNetworkFilter filter = new TransportModeNetworkFilter(completeNetwork);
-		network = NetworkUtils.createNetwork();
-		filter.filter(network, Set.of(TransportMode.car));
+		linkIndex = new LinkIndex(completeNetwork, Set.of(TransportMode.car));
 
 		zones = new Object2ObjectOpenHashMap<>(shp.readFeatures().stream()
 			.collect(Collectors.toMap(ft -> ft.getAttribute("CVE_MUN1").toString(), ft -> ft)));
@@ -156,64 +162,69 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 
 		log.info("Using input file: {}", input);
 
-		List<Population> populations = new ArrayList<>();
+		// The population and commuter relations are only read once. Each person's plan is copied k times and all copies are processed in the same pass,
+		// each with its own random stream and commuter counters. Only the k plans per person are held in memory.
+		Population population = MexicoCityUtils.readPopulation(input);
 
+		CommuterAssignment template = new CommuterAssignment(zones, commuterPath, sample);
+		commuters = new CommuterAssignment[k];
 		for (int i = 0; i < k; i++) {
+			commuters[i] = template.copy();
+		}
 
-			long rSeed = this.seed + i;
-
-			log.info("Generating plan {} with seed {}", i , rSeed);
-
-			ctxs = ThreadLocal.withInitial(() -> new Context(rSeed));
-			commuter = new CommuterAssignment(zones, commuterPath, sample);
-
-			Population population = PopulationUtils.readPopulation(input.toString());
-			ParallelPersonAlgorithmUtils.run(population, 8, this);
+		log.info("Generating {} plans per person with seeds {} to {}", k, this.seed, this.seed + k - 1);
 
-			populations.add(population);
+		ctxs = ThreadLocal.withInitial(() -> new Context(this.seed, k));
+		ParallelPersonAlgorithmUtils.run(population, 8, this);
 
-			log.info("Processed {} activities with {} warnings", total.get(), warning.get());
+		log.info("Processed {} activities with {} warnings", total.get(), warning.get());
 
-			total.set(0);
-			warning.set(0);
-		}
+		if (skipped.get() > 0)
+			log.warn("Skipped {} persons without plans", skipped.get());
 
+		MexicoCityUtils.writePopulation(population, output);
 
-		Population population = populations.get(0);
+		return 0;
+	}
 
-		// Merge all plans into the first population
-		for (int i = 1; i < populations.size(); i++) {
+	@Override
+	public void run(Person person) {
 
-			Population pop = populations.get(i);
+		if (person.getPlans().isEmpty()) {
+			skipped.incrementAndGet();
+			return;
+		}
 
-			for (Person p : pop.getPersons().values()) {
-				Person destPerson = population.getPersons().get(p.getId());
-				if (destPerson == null) {
-					log.warn("Person {} not present in all populations.", p.getId());
-					continue;
-				}
+		Context ctx = ctxs.get();
 
-				destPerson.addPlan(p.getPlans().get(0));
-			}
+		// copies need to be created before any location is assigned
+		List<Plan> original = new ArrayList<>(person.getPlans());
+		List<Plan> copies = new ArrayList<>();
+		for (int i = 1; i < k; i++) {
+			Plan copy = PopulationUtils.createPlan(person);
+			PopulationUtils.copyFromTo(original.get(0), copy);
+			copies.add(copy);
 		}
 
-		PopulationUtils.writePopulation(population, output.toString());
-
-		return 0;
+		// the first choice is generated for all input plans, the others only for a copy of the first plan
+		assignLocations(person, original, commuters[0], ctx.rnd[0]);
+		for (int i = 1; i < k; i++) {
+			Plan copy = copies.get(i - 1);
+			assignLocations(person, List.of(copy), commuters[i], ctx.rnd[i]);
+			person.addPlan(copy);
+		}
 	}
 
-	@Override
-	public void run(Person person) {
+	private void assignLocations(Person person, List<Plan> plans, CommuterAssignment commuter, SplittableRandom rnd) {
 
 		Coord homeCoord = MexicoCityUtils.getHomeCoord(person);
 
 		// Activities that only occur on one place per person
 		Map<String, ActivityFacility> fixedLocations = new HashMap<>();
-		Context ctx = ctxs.get();
 
 		int age = PersonUtils.getAge(person);
 
-		for (Plan plan : person.getPlans()) {
+		for (Plan plan : plans) {
 			List<Activity> acts = TripStructureUtils.getActivities(plan, TripStructureUtils.StageActivityHandling.ExcludeStageActivities);
 
 			// keep track of the current coordinate
@@ -244,7 +255,7 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 						String idEntMun = person.getAttributes().getAttribute(MexicoCityUtils.ENT).toString() +
 							person.getAttributes().getAttribute(MexicoCityUtils.MUN).toString();
 
-						location = sampleCommute(ctx, dist, lastCoord, idEntMun, type, age);
+						location = sampleCommute(commuter, rnd, dist, lastCoord, idEntMun, type, age);
 					}
 
 					if (location == null && trees.containsKey(type)) {
@@ -257,14 +268,14 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 						List<ActivityFacility> res = query.stream().filter(f -> checkDistanceBound(dist, refCoord, f.getCoord(), 1)).toList();
 
 						if (!res.isEmpty()) {
-							location = query.get(ctx.rnd.nextInt(query.size()));
+							location = query.get(rnd.nextInt(query.size()));
 						}
 
 						// Try with larger bounds again
 						if (location == null) {
 							res = query.stream().filter(f -> checkDistanceBound(dist, refCoord, f.getCoord(), 1.2)).toList();
 							if (!res.isEmpty()) {
-								location = query.get(ctx.rnd.nextInt(query.size()));
+								location = query.get(rnd.nextInt(query.size()));
 							}
 						}
 					}
@@ -272,7 +283,7 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 					if (location == null) {
 						// sample only coordinate if nothing else is possible
 						// Activities without facility entry, or where no facility could be found
-						Coord c = sampleLink(ctx.rnd, dist, lastCoord);
+						Coord c = sampleLink(rnd, dist, lastCoord);
 						act.setCoord(c);
 						lastCoord = c;
 
@@ -302,7 +313,7 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 	/**
 	 * Sample work place by using commute and distance information.
 	 */
-	private ActivityFacility sampleCommute(Context ctx, double dist, Coord refCoord, String zoneId, String actType, int age) {
+	private ActivityFacility sampleCommute(CommuterAssignment commuter, SplittableRandom rnd, double dist, Coord refCoord, String zoneId, String actType, int age) {
 
 		STRtree index;
 
@@ -317,12 +328,12 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 
 		// Only larger distances can be commuters to other zones
 		if (dist > 3000) {
-			destination = commuter.selectTarget(ctx.rnd, Long.parseLong(zoneId), dist, MGC.coord2Point(refCoord), zone -> sampleZone(index, dist, refCoord, zone, ctx.rnd));
+			destination = commuter.selectTarget(rnd, Long.parseLong(zoneId), dist, MGC.coord2Point(refCoord), zone -> sampleZone(index, dist, refCoord, zone, rnd));
 		}
 
 		if (destination == null) {
 			// Try selecting within same zone
-			destination = sampleZone(index, dist, refCoord, (Geometry) zones.get(zoneId).getDefaultGeometry(), ctx.rnd);
+			destination = sampleZone(index, dist, refCoord, (Geometry) zones.get(zoneId).getDefaultGeometry(), rnd);
 		}
 
 		return destination;
@@ -353,7 +364,7 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 		Coord coord = null;
 		for (int i = 0; i < 500; i++) {
 			coord = rndCoord(rnd, dist, origin);
-			Link link = NetworkUtils.getNearestLink(network, coord);
+			Link link = linkIndex.getNearestLink(coord);
 			if (!IGNORED_LINK_TYPES.contains(NetworkUtils.getType(link)))
 				break;
 		}
@@ -394,11 +405,17 @@ public class InitLocationChoice implements MATSimAppCommand, PersonAlgorithm {
 		return dist >= lower && dist <= upper;
 	}
 
+	/**
+	 * Random streams for each of the k plans.
+	 */
 	private static final class Context {
-		private final SplittableRandom rnd;
+		private final SplittableRandom[] rnd;
 
-		Context(long seed) {
-			rnd = new SplittableRandom(seed);
+		Context(long seed, int k) {
+			rnd = new SplittableRandom[k];
+			for (int i = 0; i < k; i++) {
+				rnd[i] = new SplittableRandom(seed + i);
+			}
 		}
 	}
 
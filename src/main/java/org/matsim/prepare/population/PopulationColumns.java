@@ -0,0 +1,305 @@
+package org.matsim.prepare.population;
+
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Columns of the binary population format, which is written by {@link BinaryPopulationWriter} and read by {@link BinaryPopulationReader}.
+ * There is one table each for persons, plans, plan elements, activities, legs and attributes. The rows of the tables are in the order of
+ * the population, i.e. the n-th plan table row belongs to the person, whose plans are reached when counting the plans of all persons before.
+ * All strings are stored once in a dictionary and referenced by their index, {@link #NONE} stands for null.
+ * Undefined times and missing coordinates are stored as NaN.
+ */
+final class PopulationColumns {
+
+	static final int MAGIC = 0x4d58504f;
+	static final int VERSION = 1;
+	static final int NONE = -1;
+
+	static final byte ACTIVITY = 0;
+	static final byte LEG = 1;
+
+	static final byte STRING = 0;
+	static final byte DOUBLE = 1;
+	static final byte INTEGER = 2;
+	static final byte LONG = 3;
+	static final byte BOOLEAN = 4;
+	static final byte OBJECT = 5;
+
+	private final Object2IntMap<String> dictionary = new Object2IntOpenHashMap<>();
+	private List<String> strings = new ArrayList<>();
+
+	int populationAttributes;
+
+	IntArrayList personIds = new IntArrayList();
+	IntArrayList personAttributes = new IntArrayList();
+	IntArrayList personPlans = new IntArrayList();
+	IntArrayList personSelectedPlans = new IntArrayList();
+
+	DoubleArrayList planScores = new DoubleArrayList();
+	ByteArrayList planHasScore = new ByteArrayList();
+	IntArrayList planTypes = new IntArrayList();
+	IntArrayList planElements = new IntArrayList();
+	IntArrayList planAttributes = new IntArrayList();
+
+	ByteArrayList elementTypes = new ByteArrayList();
+	IntArrayList elementAttributes = new IntArrayList();
+
+	IntArrayList actTypes = new IntArrayList();
+	DoubleArrayList actX = new DoubleArrayList();
+	DoubleArrayList actY = new DoubleArrayList();
+	DoubleArrayList actZ = new DoubleArrayList();
+	IntArrayList actLinks = new IntArrayList();
+	IntArrayList actFacilities = new IntArrayList();
+	DoubleArrayList actStartTimes = new DoubleArrayList();
+	DoubleArrayList actEndTimes = new DoubleArrayList();
+	DoubleArrayList actDurations = new DoubleArrayList();
+
+	IntArrayList legModes = new IntArrayList();
+	IntArrayList legRoutingModes = new IntArrayList();
+	DoubleArrayList legDepartureTimes = new DoubleArrayList();
+	DoubleArrayList legTravelTimes = new DoubleArrayList();
+	IntArrayList routeTypes = new IntArrayList();
+	IntArrayList routeStartLinks = new IntArrayList();
+	IntArrayList routeEndLinks = new IntArrayList();
+	IntArrayList routeDescriptions = new IntArrayList();
+	IntArrayList routeVehicles = new IntArrayList();
+	DoubleArrayList routeTravelTimes = new DoubleArrayList();
+	DoubleArrayList routeDistances = new DoubleArrayList();
+
+	IntArrayList attrKeys = new IntArrayList();
+	ByteArrayList attrTypes = new ByteArrayList();
+	IntArrayList attrClasses = new IntArrayList();
+	LongArrayList attrValues = new LongArrayList();
+
+	PopulationColumns() {
+		dictionary.defaultReturnValue(NONE);
+	}
+
+	/**
+	 * Index of a string in the dictionary, which is added if not present yet.
+	 */
+	int string(String s) {
+		if (s == null)
+			return NONE;
+
+		int idx = dictionary.getInt(s);
+		if (idx == NONE) {
+			idx = strings.size();
+			strings.add(s);
+			dictionary.put(s, idx);
+		}
+
+		return idx;
+	}
+
+	/**
+	 * String of a dictionary index.
+	 */
+	String string(int idx) {
+		return idx == NONE ? null : strings.get(idx);
+	}
+
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+
+		writeStrings(out, strings);
+		out.writeInt(populationAttributes);
+
+		writeInts(out, personIds);
+		writeInts(out, personAttributes);
+		writeInts(out, personPlans);
+		writeInts(out, personSelectedPlans);
+
+		writeDoubles(out, planScores);
+		writeBytes(out, planHasScore);
+		writeInts(out, planTypes);
+		writeInts(out, planElements);
+		writeInts(out, planAttributes);
+
+		writeBytes(out, elementTypes);
+		writeInts(out, elementAttributes);
+
+		writeInts(out, actTypes);
+		writeDoubles(out, actX);
+		writeDoubles(out, actY);
+		writeDoubles(out, actZ);
+		writeInts(out, actLinks);
+		writeInts(out, actFacilities);
+		writeDoubles(out, actStartTimes);
+		writeDoubles(out, actEndTimes);
+		writeDoubles(out, actDurations);
+
+		writeInts(out, legModes);
+		writeInts(out, legRoutingModes);
+		writeDoubles(out, legDepartureTimes);
+		writeDoubles(out, legTravelTimes);
+		writeInts(out, routeTypes);
+		writeInts(out, routeStartLinks);
+		writeInts(out, routeEndLinks);
+		writeInts(out, routeDescriptions);
+		writeInts(out, routeVehicles);
+		writeDoubles(out, routeTravelTimes);
+		writeDoubles(out, routeDistances);
+
+		writeInts(out, attrKeys);
+		writeBytes(out, attrTypes);
+		writeInts(out, attrClasses);
+		writeLongs(out, attrValues);
+	}
+
+	/**
+	 * Read all columns, in the same order as they are written.
+	 */
+	void read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a binary population file.");
+
+		int version = in.readInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported binary population version " + version);
+
+		strings = readStrings(in);
+		populationAttributes = in.readInt();
+
+		personIds = readInts(in);
+		personAttributes = readInts(in);
+		personPlans = readInts(in);
+		personSelectedPlans = readInts(in);
+
+		planScores = readDoubles(in);
+		planHasScore = readBytes(in);
+		planTypes = readInts(in);
+		planElements = readInts(in);
+		planAttributes = readInts(in);
+
+		elementTypes = readBytes(in);
+		elementAttributes = readInts(in);
+
+		actTypes = readInts(in);
+		actX = readDoubles(in);
+		actY = readDoubles(in);
+		actZ = readDoubles(in);
+		actLinks = readInts(in);
+		actFacilities = readInts(in);
+		actStartTimes = readDoubles(in);
+		actEndTimes = readDoubles(in);
+		actDurations = readDoubles(in);
+
+		legModes = readInts(in);
+		legRoutingModes = readInts(in);
+		legDepartureTimes = readDoubles(in);
+		legTravelTimes = readDoubles(in);
+		routeTypes = readInts(in);
+		routeStartLinks = readInts(in);
+		routeEndLinks = readInts(in);
+		routeDescriptions = readInts(in);
+		routeVehicles = readInts(in);
+		routeTravelTimes = readDoubles(in);
+		routeDistances = readDoubles(in);
+
+		attrKeys = readInts(in);
+		attrTypes = readBytes(in);
+		attrClasses = readInts(in);
+		attrValues = readLongs(in);
+	}
+
+	/**
+	 * Strings are stored as column of their byte lengths, followed by all utf-8 bytes.
+	 */
+	private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+		IntArrayList lengths = new IntArrayList(strings.size());
+		ByteArrayList bytes = new ByteArrayList();
+		for (String s : strings) {
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			lengths.add(b.length);
+			bytes.addElements(bytes.size(), b);
+		}
+
+		writeInts(out, lengths);
+		writeBytes(out, bytes);
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		IntArrayList lengths = readInts(in);
+		byte[] bytes = readBytes(in).elements();
+
+		List<String> result = new ArrayList<>(lengths.size());
+		int offset = 0;
+		for (int i = 0; i < lengths.size(); i++) {
+			result.add(new String(bytes, offset, lengths.getInt(i), StandardCharsets.UTF_8));
+			offset += lengths.getInt(i);
+		}
+
+		return result;
+	}
+
+	private static void writeBytes(DataOutputStream out, ByteArrayList column) throws IOException {
+		out.writeInt(column.size());
+		out.write(column.elements(), 0, column.size());
+	}
+
+	private static void writeInts(DataOutputStream out, IntArrayList column) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(column.size() * Integer.BYTES);
+		buffer.asIntBuffer().put(column.elements(), 0, column.size());
+		out.writeInt(column.size());
+		out.write(buffer.array());
+	}
+
+	private static void writeLongs(DataOutputStream out, LongArrayList column) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(column.size() * Long.BYTES);
+		buffer.asLongBuffer().put(column.elements(), 0, column.size());
+		out.writeInt(column.size());
+		out.write(buffer.array());
+	}
+
+	private static void writeDoubles(DataOutputStream out, DoubleArrayList column) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(column.size() * Double.BYTES);
+		buffer.asDoubleBuffer().put(column.elements(), 0, column.size());
+		out.writeInt(column.size());
+		out.write(buffer.array());
+	}
+
+	private static ByteArrayList readBytes(DataInputStream in) throws IOException {
+		byte[] column = new byte[in.readInt()];
+		in.readFully(column);
+		return ByteArrayList.wrap(column);
+	}
+
+	private static IntArrayList readInts(DataInputStream in) throws IOException {
+		int[] column = new int[in.readInt()];
+		ByteBuffer buffer = ByteBuffer.allocate(column.length * Integer.BYTES);
+		in.readFully(buffer.array());
+		buffer.asIntBuffer().get(column);
+		return IntArrayList.wrap(column);
+	}
+
+	private static LongArrayList readLongs(DataInputStream in) throws IOException {
+		long[] column = new long[in.readInt()];
+		ByteBuffer buffer = ByteBuffer.allocate(column.length * Long.BYTES);
+		in.readFully(buffer.array());
+		buffer.asLongBuffer().get(column);
+		return LongArrayList.wrap(column);
+	}
+
+	private static DoubleArrayList readDoubles(DataInputStream in) throws IOException {
+		double[] column = new double[in.readInt()];
+		ByteBuffer buffer = ByteBuffer.allocate(column.length * Double.BYTES);
+		in.readFully(buffer.array());
+		buffer.asDoubleBuffer().get(column);
+		return DoubleArrayList.wrap(column);
+	}
+}
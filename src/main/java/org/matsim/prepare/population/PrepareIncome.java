@@ -4,9 +4,6 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.lang.math.DoubleRange;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.operation.buffer.BufferOp;
-import org.locationtech.jts.operation.buffer.BufferParameters;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
@@ -14,10 +11,8 @@ import org.matsim.application.MATSimAppCommand;
 import org.matsim.application.options.CsvOptions;
 import org.matsim.application.options.ShpOptions;
 import org.matsim.core.population.PersonUtils;
-import org.matsim.core.population.PopulationUtils;
-import org.matsim.core.utils.geometry.geotools.MGC;
 import org.matsim.prepare.MexicoCityUtils;
-import org.opengis.feature.simple.SimpleFeature;
+import org.matsim.prepare.ZoneIndex;
 import picocli.CommandLine;
 
 import java.nio.file.Path;
@@ -36,12 +31,15 @@ public class PrepareIncome implements MATSimAppCommand {
 	private Path output;
 	@CommandLine.Mixin()
 	private final ShpOptions shp = new ShpOptions();
+	@CommandLine.Option(names = "--seed", description = "Seed for the random income within the income groups", defaultValue = "" + DEFAULT_SEED)
+	private long seed;
 
 	private final CsvOptions csv = new CsvOptions(CSVFormat.Predefined.Default);
 
-	private static Map<String, DoubleRange> incomeGroups = new HashMap<>();
-
-	private static SplittableRandom rnd = new SplittableRandom();
+	/**
+	 * Seed, which is used if no seed is given explicitly.
+	 */
+	public static final long DEFAULT_SEED = 1;
 
 	public static void main(String[] args) {
 		new PrepareIncome().execute(args);
@@ -49,11 +47,11 @@ public class PrepareIncome implements MATSimAppCommand {
 
 	@Override
 	public Integer call() throws Exception {
-		Population population = PopulationUtils.readPopulation(input.toString());
+		Population population = MexicoCityUtils.readPopulation(input);
 
-		assignIncomeAttr(shp, population);
+		assignIncomeAttr(shp, population, seed);
 
-		PopulationUtils.writePopulation(population, output.toString());
+		MexicoCityUtils.writePopulation(population, output);
 		log.info("Population with income attributes has been written to {}", output);
 
 		return 0;
@@ -77,21 +75,22 @@ public class PrepareIncome implements MATSimAppCommand {
 	 * assign income attributes to each person. This is extracted to a method for being able to call the method in the RunClass.
 	 */
 	public static void assignIncomeAttr(ShpOptions shp, Population population) {
+		assignIncomeAttr(shp, population, DEFAULT_SEED);
+	}
+
+	/**
+	 * assign income attributes to each person. The same seed and population always result in the same incomes.
+	 */
+	public static void assignIncomeAttr(ShpOptions shp, Population population, long seed) {
 
+		Map<String, DoubleRange> incomeGroups = new HashMap<>();
 		prepareIncomeGroupsMap(incomeGroups);
 
+		SplittableRandom rnd = new SplittableRandom(seed);
+
 //		shp file contains the avg familiar income group based on analysis of ITDP México
-		Map<Geometry, String> geometries = new HashMap<>();
-
-		for (SimpleFeature feature : shp.readFeatures()) {
-			Geometry geom;
-			if (!(((Geometry) feature.getDefaultGeometry()).isValid())) {
-				geom = BufferOp.bufferOp((Geometry) feature.getDefaultGeometry(), 0.0, BufferParameters.CAP_ROUND);
-			} else {
-				geom = (Geometry) feature.getDefaultGeometry();
-			}
-			geometries.put(geom, feature.getAttribute("amai").toString());
-		}
+//		the income groups are called amai because of the institution who calculated them (amai.org)
+		ZoneIndex<String> zones = new ZoneIndex<>(shp.readFeatures(), ft -> ft.getAttribute("amai").toString());
 
 		int count = 0;
 		int countNoHHSize = 0;
@@ -109,39 +108,24 @@ public class PrepareIncome implements MATSimAppCommand {
 			int hhSize = (int) p.getAttributes().getAttribute(MexicoCityUtils.HOUSEHOLD_SIZE);
 
 			if (PersonUtils.getIncome(p) == null) {
-				Double income2017 = null;
+				double income2017;
 
-				for (Map.Entry<Geometry, String> e : geometries.entrySet()) {
-					if (MGC.coord2Point(homeCoord).within(e.getKey())) {
-//					the income groups are called amai because of the institution who calculated them (amai.org)
-						String group = e.getValue();
+				String group = zones.query(homeCoord);
 
-						if (group.equals("#N/A")) {
-//						if na -> random income
-							income2017 = rnd.nextDouble(0., 170001.) * 1.6173;
-							count++;
-						} else {
-							DoubleRange incomeRange = incomeGroups.get(group);
+				if (group == null || group.equals("#N/A")) {
+//					if homeLoc is not inside any of the shp areas or the group is n/a -> assign randomly
+					income2017 = rnd.nextDouble(0., 170001.) * 1.6173;
+					count++;
+				} else {
+					DoubleRange incomeRange = incomeGroups.get(group);
 
 //					values for income ranges are for 2005 -> value for 2017 = value2005  + value2005 * accumulated inflation2005-2017 (0.6173)
 //					https://www.dineroeneltiempo.com/inflacion/peso-mexicano?valor=1&ano1=2005&ano2=2017
-							income2017 = rnd.nextDouble(incomeRange.getMinimumDouble(), incomeRange.getMaximumDouble() + 1) * 1.6173;
-						}
-						break;
-					}
-				}
-
-				if (income2017 == null) {
-//					if homeLoc is not inside any of the shp areas -> assign randomly
-					income2017 = rnd.nextDouble(0., 170001.) * 1.6173;
-					count++;
+					income2017 = rnd.nextDouble(incomeRange.getMinimumDouble(), incomeRange.getMaximumDouble() + 1) * 1.6173;
 				}
 
 				PersonUtils.setIncome(p, income2017 / hhSize);
-
 			}
-
-
 		}
 
 		log.info("For {} persons, no household size was assigned. The average household size of 4 persons (ENIGH2018) was assigned to them.", countNoHHSize);
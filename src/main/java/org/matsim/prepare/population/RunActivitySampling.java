@@ -21,19 +21,17 @@ import org.matsim.application.options.ShpOptions;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PersonUtils;
-import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.ParallelPersonAlgorithmUtils;
 import org.matsim.core.population.algorithms.PersonAlgorithm;
 import org.matsim.core.router.*;
 import org.matsim.core.scenario.ScenarioUtils;
-import org.matsim.core.utils.geometry.geotools.MGC;
 import org.matsim.facilities.*;
 import org.matsim.prepare.MexicoCityUtils;
+import org.matsim.prepare.PolygonSampler;
 import org.opengis.feature.simple.SimpleFeature;
 import picocli.CommandLine;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
@@ -81,7 +79,14 @@ public class RunActivitySampling implements MATSimAppCommand, PersonAlgorithm {
 	private PopulationFactory factory;
 	private ActivityFacilitiesFactory fac = FacilitiesUtils.createActivityFacilities().getFactory();
 	private Map<String, RoutingModule> routingModules = new HashMap<>();
-	private List<SimpleFeature> features = new ArrayList<>();
+	/**
+	 * Coordinate sampler for each EOD2017 district.
+	 */
+	private final Map<String, PolygonSampler> districts = new HashMap<>();
+	/**
+	 * Coordinate sampler for the area outside of the metropolitan area (district 888).
+	 */
+	private PolygonSampler outside;
 	private Map<Id<Person>, Person> agentsWithoutSubgroup = new HashMap<>();
 
 	public static void main(String[] args) {
@@ -96,16 +101,19 @@ public class RunActivitySampling implements MATSimAppCommand, PersonAlgorithm {
 			return 2;
 		}
 
-		features.addAll(shp.readFeatures());
+		prepareDistrictSamplers(shp.readFeatures());
 
 		Config config = ConfigUtils.createConfig();
-		config.plans().setInputFile(input.toString());
+		if (!MexicoCityUtils.isBinaryPopulation(input))
+			config.plans().setInputFile(input.toString());
 		config.global().setCoordinateSystem(MexicoCityUtils.CRS);
 		config.network().setInputFile(networkPath.toString());
 //		directWalkFactor set to high value to avoid creation of walk leg instead of pt leg when using swissRailRaptorRoutingModule
 		config.transitRouter().setDirectWalkFactor(1000.);
 
 		Scenario scenario = ScenarioUtils.loadScenario(config);
+		if (MexicoCityUtils.isBinaryPopulation(input))
+			new BinaryPopulationReader(scenario.getPopulation()).read(input);
 
 		try (CSVParser parser = csv.createParser(personsPath)) {
 			log.info("Parsing persons sample data from {}. Due to the size of the dataset this may take a while.", personsPath);
@@ -137,7 +145,7 @@ public class RunActivitySampling implements MATSimAppCommand, PersonAlgorithm {
 
 		ctxs.remove();
 
-		PopulationUtils.writePopulation(population, output.toString());
+		MexicoCityUtils.writePopulation(population, output);
 
 		double atHome = 0;
 		for (Person person : population.getPersons().values()) {
@@ -545,42 +553,46 @@ public class RunActivitySampling implements MATSimAppCommand, PersonAlgorithm {
 		return routedDistance.get();
 	}
 
+	/**
+	 * Triangulate all districts once, such that coordinates can be drawn without rejection sampling.
+	 */
+	private void prepareDistrictSamplers(List<SimpleFeature> features) {
+		Map<String, List<Geometry>> geometries = new HashMap<>();
+		for (SimpleFeature ft : features) {
+			geometries.computeIfAbsent(ft.getAttribute("Distrito").toString(), k -> new ArrayList<>()).add((Geometry) ft.getDefaultGeometry());
+		}
+
+		for (Map.Entry<String, List<Geometry>> e : geometries.entrySet()) {
+			List<Geometry> geoms = e.getValue();
+			Geometry geom = geoms.size() == 1 ? geoms.get(0) : geoms.get(0).getFactory().buildGeometry(geoms).union();
+			districts.put(e.getKey(), new PolygonSampler(geom));
+		}
+
+//		888 -> outside of metropolitan area
+//		buffer of 150km
+		Geometry zmvm = shp.getGeometry();
+		outside = new PolygonSampler(zmvm.buffer(150000).difference(zmvm));
+
+		log.info("Prepared coordinate sampling for {} districts.", districts.size());
+	}
+
 	private Coord generateRandomCoord(SplittableRandom rnd, String districtNumber, Coord homeCoord, String homeDistrict, int noLoc) {
-		AtomicReference<Double> randomX = new AtomicReference<>();
-		AtomicReference<Double> randomY = new AtomicReference<>();
 
 		if (homeCoord != null && districtNumber.equals(homeDistrict) && noLoc == 1) {
 //			noLoc = index of districtNumber in List is needed because in the case of a route of same district to same district + home act (e.g. distr 178 to distr 178) ->
 //			method returns homeCoord for dep + arr -> route of 0 seconds - sme0124
-			randomX.set(homeCoord.getX());
-			randomY.set(homeCoord.getY());
+			return new Coord(homeCoord.getX(), homeCoord.getY());
 		} else if (districtNumber.equals("888")) {
-//			888 -> outside of metropolitan area
-//			buffer of 150km
-			Geometry outsideZMVM = shp.getGeometry().buffer(150000).difference(shp.getGeometry());
-
-			randomX.set(rnd.nextDouble(outsideZMVM.getEnvelopeInternal().getMinX(),
-				outsideZMVM.getEnvelopeInternal().getMinX() + outsideZMVM.getEnvelopeInternal().getWidth()));
-			randomY.set(rnd.nextDouble(outsideZMVM.getEnvelopeInternal().getMinY(),
-				outsideZMVM.getEnvelopeInternal().getMinY() + outsideZMVM.getEnvelopeInternal().getHeight()));
-		} else {
-			AtomicBoolean containsPoint = new AtomicBoolean(false);
-			while (!containsPoint.get()) {
-//				generate random coord based on district of zmvm
-				features.stream().filter(feature ->
-					feature.getAttribute("Distrito").equals(districtNumber)).forEach(feature -> {
-
-					Envelope env = ((Geometry) feature.getDefaultGeometry()).getEnvelopeInternal();
-
-					randomX.set(rnd.nextDouble(env.getMinX(), env.getMinX() + env.getWidth()));
-					randomY.set(rnd.nextDouble(env.getMinY(), env.getMinY() + env.getHeight()));
-
-					containsPoint.set(MGC.xy2Point(randomX.get(), randomY.get()).within((Geometry) feature.getDefaultGeometry()));
-				});
+			return outside.sample(rnd);
+		}
 
-			}
+//		generate random coord based on district of zmvm
+		PolygonSampler district = districts.get(districtNumber);
+		if (district == null) {
+			throw new IllegalArgumentException("District " + districtNumber + " is not contained in the shp file.");
 		}
-		return new Coord(randomX.get(), randomY.get());
+
+		return district.sample(rnd);
 	}
 
 	/**
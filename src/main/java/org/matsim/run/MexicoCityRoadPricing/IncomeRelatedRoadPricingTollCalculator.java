@@ -35,13 +35,11 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.contrib.roadpricing.RoadPricingScheme;
-import org.matsim.contrib.roadpricing.RoadPricingSchemeImpl.Cost;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
-import org.matsim.core.population.PersonUtils;
 
-import java.util.NavigableMap;
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * Calculates the toll agents pay during a simulation by analyzing events.
@@ -58,23 +56,28 @@ public final class IncomeRelatedRoadPricingTollCalculator implements LinkEnterEv
 	/**
 	 * Much of this is no longer needed since we now throw money events immediately when links are left.  It is, however, still
 	 * needed for area toll, and for the specific implementation of cordon toll here. kai, jan'21
+	 * Tolls are accumulated per person index instead of a map, because this is on the hot path of every iteration.
 	 */
-	private final NavigableMap<Id<Person>, AgentTollInfo> agents = new TreeMap<>();
+	private double[] tolls = new double[0];
+
+	/**
+	 * Persons, which already paid the area toll in this iteration.
+	 */
+	private final BitSet registered = new BitSet();
 
 	private final Network network;
 
 	private final TollBehaviourI handler;
 	private final Vehicle2DriverEventHandler delegate = new Vehicle2DriverEventHandler();
 
-	private final Population population;
-	private final RoadPricingScheme scheme;
+	private final TollTable table;
 	Logger log = LogManager.getLogger( IncomeRelatedRoadPricingTollCalculator.class ) ;
 
 	IncomeRelatedRoadPricingTollCalculator(final Network network, final RoadPricingScheme scheme, EventsManager events, final Population population) {
 		events.addHandler(this);
 		this.network = network;
-		this.scheme = scheme;
-		this.population = population;
+		this.table = new TollTable(scheme, population);
+		this.table.updateIncomes();
 		if (RoadPricingScheme.TOLL_TYPE_DISTANCE.equals(scheme.getType())) {
 			this.handler = new DistanceTollBehaviour(events);
 			log.info("just instantiated DistanceTollBehavior") ;
@@ -143,7 +146,9 @@ public final class IncomeRelatedRoadPricingTollCalculator implements LinkEnterEv
 
 	@Override
 	public void reset(final int iteration) {
-		this.agents.clear();
+		Arrays.fill(this.tolls, 0.0);
+		this.registered.clear();
+		this.table.updateIncomes();
 		delegate.reset(iteration);
 	}
 
@@ -167,11 +172,11 @@ public final class IncomeRelatedRoadPricingTollCalculator implements LinkEnterEv
 	 * returns The toll paid by all the agents.
 	 */
 	double getAllAgentsToll() {
-		double tolls = 0;
-		for (AgentTollInfo ai : this.agents.values()) {
-			tolls += (ai == null) ? 0.0 : ai.toll;
+		double sum = 0;
+		for (double toll : this.tolls) {
+			sum += toll;
 		}
-		return tolls;
+		return sum;
 	}
 
 	/**
@@ -179,14 +184,22 @@ public final class IncomeRelatedRoadPricingTollCalculator implements LinkEnterEv
 	 */
 	int getDraweesNr() {
 		int dwCnt = 0;
-		for (AgentTollInfo ai : this.agents.values()) {
-			if ((ai != null) && (ai.toll > 0.0)) {
+		for (double toll : this.tolls) {
+			if (toll > 0.0) {
 				dwCnt++;
 			}
 		}
 		return dwCnt;
 	}
 
+	private void addToll(Id<Person> personId, double toll) {
+		int idx = personId.index();
+		if (idx >= this.tolls.length) {
+			this.tolls = Arrays.copyOf(this.tolls, Math.max(idx + 1, Id.getNumberOfIds(Person.class)));
+		}
+		this.tolls[idx] += toll;
+	}
+
 	/**
 	 * A simple interface to implement different toll schemes.
 	 */
@@ -211,14 +224,12 @@ public final class IncomeRelatedRoadPricingTollCalculator implements LinkEnterEv
 		@Override
 		public void handleEvent(final LinkEnterEvent event, final Link link) {
 			Id<Person> driverId = delegate.getDriverOfVehicle(event.getVehicleId());
-			Cost cost = IncomeRelatedRoadPricingTollCalculator.this.scheme.getLinkCostInfo(link.getId(), event.getTime(), driverId, event.getVehicleId());
-			if (cost != null) {
-				Person p = population.getPersons().get(driverId);
-				double newToll = link.getLength() * cost.amount * PersonUtils.getIncome(p);
+			double amount = table.getAmount(link.getId(), event.getTime(), driverId, event.getVehicleId());
+			if (!Double.isNaN(amount)) {
+				double newToll = link.getLength() * amount * table.getIncome(driverId);
 				events.processEvent(new PersonMoneyEvent(event.getTime(), driverId, -newToll, "incomeRelatedToll", null));
 
-				AgentTollInfo info = IncomeRelatedRoadPricingTollCalculator.this.agents.computeIfAbsent( driverId, (key) -> new AgentTollInfo() );
-				info.toll += newToll;
+				addToll(driverId, newToll);
 			}
 		}
 	}
@@ -236,13 +247,12 @@ public final class IncomeRelatedRoadPricingTollCalculator implements LinkEnterEv
 		@Override
 		public void handleEvent(final LinkEnterEvent event, final Link link) {
 			Id<Person> driverId = delegate.getDriverOfVehicle(event.getVehicleId());
-			Cost cost = IncomeRelatedRoadPricingTollCalculator.this.scheme.getLinkCostInfo(link.getId(), event.getTime(), driverId, event.getVehicleId() );
-			if (cost != null) {
-				Person p = population.getPersons().get(driverId);
-				events.processEvent(new PersonMoneyEvent(event.getTime(), driverId, -cost.amount * PersonUtils.getIncome(p), "incomeRelatedToll", null));
+			double amount = table.getAmount(link.getId(), event.getTime(), driverId, event.getVehicleId());
+			if (!Double.isNaN(amount)) {
+				double newToll = amount * table.getIncome(driverId);
+				events.processEvent(new PersonMoneyEvent(event.getTime(), driverId, -newToll, "incomeRelatedToll", null));
 
-				AgentTollInfo info = IncomeRelatedRoadPricingTollCalculator.this.agents.computeIfAbsent( driverId, (key) -> new AgentTollInfo() );
-				info.toll += cost.amount * PersonUtils.getIncome(p);
+				addToll(driverId, newToll);
 			}
 		}
 	}
@@ -270,39 +280,21 @@ public final class IncomeRelatedRoadPricingTollCalculator implements LinkEnterEv
 		@Override
 		public void handleEvent(final LinkEnterEvent event, final Link link) {
 			Id<Person> driverId = delegate.getDriverOfVehicle(event.getVehicleId());
-			Cost cost = IncomeRelatedRoadPricingTollCalculator.this.scheme.getLinkCostInfo(link.getId(), event.getTime(), driverId, event.getVehicleId() );
-			if (cost != null) {
-				AgentTollInfo info = IncomeRelatedRoadPricingTollCalculator.this.agents.get(driverId);
-				if (info == null) {
-					/* The agent is not yet "registered" */
-
-					/* Generate a "registration object" */
-					info = new AgentTollInfo();
-
-					/* Register it. */
-					IncomeRelatedRoadPricingTollCalculator.this.agents.put(driverId, info);
-
-					Person p = population.getPersons().get(driverId);
-
-					/* The toll amount comes from the current link, but should
-					 * be the same for all links. */
-//					This is the only difference to the "normal" RoadPricingTollCalculator. Instead of parsing the amount, it is multiplied by the person's income.
-//					-> amount assigned to links is a relative value, e.g. 0.01% of the income. -sme0224
-					events.processEvent(new PersonMoneyEvent(event.getTime(), driverId, -cost.amount * PersonUtils.getIncome(p), "incomeRelatedToll", null));
+			double amount = table.getAmount(link.getId(), event.getTime(), driverId, event.getVehicleId());
+			if (!Double.isNaN(amount) && !registered.get(driverId.index())) {
+				/* The agent is not yet "registered", register it. */
+				registered.set(driverId.index());
+
+				/* The toll amount comes from the current link, but should
+				 * be the same for all links. */
+//				This is the only difference to the "normal" RoadPricingTollCalculator. Instead of parsing the amount, it is multiplied by the person's income.
+//				-> amount assigned to links is a relative value, e.g. 0.01% of the income. -sme0224
+				double newToll = amount * table.getIncome(driverId);
+				events.processEvent(new PersonMoneyEvent(event.getTime(), driverId, -newToll, "incomeRelatedToll", null));
 
-					info.toll = cost.amount * PersonUtils.getIncome(p);
-				}
+				addToll(driverId, newToll);
 			}
 		}
 	}
 
-	/**
-	 * Much of this is no longer needed since we now throw money events immediately when links are left.  It is, however, still
-	 * needed for area toll, and for the specific implementation of cordon toll here. kai, jan'21
-	 */
-	private static class AgentTollInfo {
-		private double toll = 0.0;
-		boolean insideCordonArea = true;
-	}
-
 }
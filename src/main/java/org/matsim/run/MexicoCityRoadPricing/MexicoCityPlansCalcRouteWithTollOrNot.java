@@ -24,11 +24,14 @@ package org.matsim.run.MexicoCityRoadPricing;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.contrib.roadpricing.RoadPricingScheme;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.PlanRouter;
@@ -36,6 +39,8 @@ import org.matsim.core.router.TripRouter;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.utils.timing.TimeInterpretation;
 
+import java.util.Set;
+
 
 /**
  * copied from org.matsim.contrib.roadpricing.
@@ -61,30 +66,67 @@ class MexicoCityPlansCalcRouteWithTollOrNot implements PlanAlgorithm {
 	   // This calculates a best-response plan from the two options, paying area toll or not.
 	   // From what I understand, it may be simpler/better to just throw a coin and produce
 	   // one of the two options.
-	   replaceCarModeWithTolledCarMode(plan);
+	   if (!replaceCarModeWithTolledCarMode(plan)) {
+		   // no car trips, the toll is not relevant for this plan
+		   planRouter.run( plan );
+		   return;
+	   }
+
 	   planRouter.run( plan );
+
+	   // The router of the tolled mode ignores the toll. If its best routes do not touch any tolled link,
+	   // the toll does not change them, and they are also the best routes without paying the toll.
+	   // Thus, the second routing can be skipped.
+	   if (!touchesTolledLinks(plan)) {
+		   replaceTolledCarModeWithCarMode(plan);
+		   return;
+	   }
+
+	   // keep the tolled routes, so that they do not need to be calculated a third time
+	   Plan tolled = PopulationUtils.createPlan(plan.getPerson());
+	   PopulationUtils.copyFromTo(plan, tolled);
+
 	   double areaToll = roadPricingScheme.getTypicalCosts().iterator().next().amount;
 	   double routeCostWithAreaToll = sumNetworkModeCosts(plan) + areaToll;
 	   replaceTolledCarModeWithCarMode(plan);
 	   planRouter.run( plan );
 	   double routeCostWithoutAreaToll = sumNetworkModeCosts(plan);
 	   if (routeCostWithAreaToll < routeCostWithoutAreaToll) {
-		   replaceCarModeWithTolledCarMode(plan);
-		   planRouter.run( plan );
+		   PopulationUtils.copyFromTo(tolled, plan);
+	   }
+   }
+
+   private boolean touchesTolledLinks(Plan plan) {
+	   Set<Id<Link>> tolledLinks = roadPricingScheme.getTolledLinkIds();
+	   for (PlanElement planElement : plan.getPlanElements()) {
+		   if (planElement instanceof Leg leg && leg.getRoute() instanceof NetworkRoute route) {
+			   if (tolledLinks.contains(route.getStartLinkId()) || tolledLinks.contains(route.getEndLinkId())) {
+				   return true;
+			   }
+			   for (Id<Link> linkId : route.getLinkIds()) {
+				   if (tolledLinks.contains(linkId)) {
+					   return true;
+				   }
+			   }
+		   }
 	   }
+	   return false;
    }
 
    // This most likely will not work for intermodal setups with car e.g. as access mode to pt and routing mode of the trip
    // something else than car.
    // However, it did not work before the switch to routing mode either. - gl-nov'19
-   private void replaceCarModeWithTolledCarMode(Plan plan) {
+   private boolean replaceCarModeWithTolledCarMode(Plan plan) {
+	   boolean replaced = false;
 	   for (PlanElement planElement : plan.getPlanElements()) {
 		   if (planElement instanceof Leg) {
 			   if (TripStructureUtils.getRoutingMode((Leg) planElement).equals(TransportMode.car)) {
 				   TripStructureUtils.setRoutingMode( (Leg) planElement , CAR_WITH_PAYED_AREA_TOLL );
+				   replaced = true;
 			   }
 		   }
 	   }
+	   return replaced;
    }
 
    private void replaceTolledCarModeWithCarMode(Plan plan) {
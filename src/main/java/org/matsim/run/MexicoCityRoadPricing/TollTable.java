@@ -0,0 +1,138 @@
+package org.matsim.run.MexicoCityRoadPricing;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.contrib.roadpricing.RoadPricingScheme;
+import org.matsim.contrib.roadpricing.RoadPricingSchemeImpl;
+import org.matsim.contrib.roadpricing.RoadPricingSchemeImpl.Cost;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Precomputed toll amounts per link and time bin, and incomes per person, both addressed by {@link Id#index()}.
+ * The time bins are separated by the start and end times of all costs of the scheme, so the amount is constant within a bin.
+ * Only the default {@link RoadPricingSchemeImpl} is precomputed, because other schemes may depend on person or vehicle.
+ * For these, the scheme is asked directly.
+ */
+final class TollTable {
+
+	private final RoadPricingScheme scheme;
+	private final Population population;
+
+	/**
+	 * Sorted start and end times of all costs.
+	 */
+	private final double[] bounds;
+
+	/**
+	 * Toll amount per link index and time bin, NaN if the link is not tolled. Null if the scheme is not precomputed.
+	 */
+	private final double[] amounts;
+
+	/**
+	 * Income per person index, NaN if unknown.
+	 */
+	private double[] incomes = new double[0];
+
+	TollTable(RoadPricingScheme scheme, Population population) {
+		this.scheme = scheme;
+		this.population = population;
+
+		TreeSet<Double> times = new TreeSet<>();
+		scheme.getTypicalCosts().forEach(c -> addBounds(times, c));
+		for (List<Cost> costs : scheme.getTypicalCostsForLink().values()) {
+			if (costs != null) {
+				costs.forEach(c -> addBounds(times, c));
+			}
+		}
+		this.bounds = times.stream().mapToDouble(Double::doubleValue).toArray();
+
+		if (scheme.getClass() == RoadPricingSchemeImpl.class) {
+			int bins = bounds.length + 1;
+			this.amounts = new double[Id.getNumberOfIds(Link.class) * bins];
+			Arrays.fill(amounts, Double.NaN);
+
+			for (Id<Link> linkId : scheme.getTolledLinkIds()) {
+				for (int bin = 0; bin < bins; bin++) {
+					Cost cost = scheme.getLinkCostInfo(linkId, getBinTime(bin), null, null);
+					if (cost != null) {
+						amounts[linkId.index() * bins + bin] = cost.amount;
+					}
+				}
+			}
+		} else {
+			this.amounts = null;
+		}
+	}
+
+	private static void addBounds(TreeSet<Double> times, Cost cost) {
+		times.add(cost.startTime);
+		times.add(cost.endTime);
+	}
+
+	/**
+	 * Representative time of a bin. Costs are valid for [start, end), so the lower bound of the bin is used.
+	 */
+	private double getBinTime(int bin) {
+		if (bounds.length == 0) {
+			return 0;
+		}
+		return bin == 0 ? bounds[0] - 1 : bounds[bin - 1];
+	}
+
+	private int getBin(double time) {
+		int idx = Arrays.binarySearch(bounds, time);
+		return idx >= 0 ? idx + 1 : -idx - 1;
+	}
+
+	/**
+	 * Copy the incomes of all persons into the index-addressed array. Should be called once per iteration.
+	 */
+	void updateIncomes() {
+		double[] values = new double[Id.getNumberOfIds(Person.class)];
+		Arrays.fill(values, Double.NaN);
+		for (Person p : population.getPersons().values()) {
+			Double income = PersonUtils.getIncome(p);
+			if (income != null) {
+				values[p.getId().index()] = income;
+			}
+		}
+		this.incomes = values;
+	}
+
+	/**
+	 * Returns the toll amount on the link at the given time, or NaN if the link is not tolled.
+	 */
+	double getAmount(Id<Link> linkId, double time, Id<Person> personId, Id<Vehicle> vehicleId) {
+		if (amounts == null) {
+			Cost cost = scheme.getLinkCostInfo(linkId, time, personId, vehicleId);
+			return cost == null ? Double.NaN : cost.amount;
+		}
+
+		int bins = bounds.length + 1;
+		int idx = linkId.index() * bins;
+		if (idx >= amounts.length) {
+			return Double.NaN;
+		}
+
+		return amounts[idx + getBin(time)];
+	}
+
+	/**
+	 * Returns the income of a person. Persons unknown at the last update are looked up in the population.
+	 */
+	double getIncome(Id<Person> personId) {
+		int idx = personId.index();
+		if (idx < incomes.length && !Double.isNaN(incomes[idx])) {
+			return incomes[idx];
+		}
+
+		return PersonUtils.getIncome(population.getPersons().get(personId));
+	}
+}
@@ -1,20 +1,22 @@
 package org.matsim.run;
 
-import org.locationtech.jts.geom.Geometry;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.application.options.ShpOptions;
 import org.matsim.contrib.roadpricing.RoadPricingScheme;
 import org.matsim.contrib.roadpricing.RoadPricingSchemeImpl;
 import org.matsim.contrib.roadpricing.RoadPricingUtils;
-import org.matsim.core.utils.geometry.geotools.MGC;
 import org.matsim.core.utils.misc.Time;
+import org.matsim.prepare.network.LinkAreaClassifier;
 import org.opengis.feature.simple.SimpleFeature;
 import picocli.CommandLine;
 
+import javax.annotation.Nullable;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class bundles some run parameter options and functionalities connected to road-pricing-scenarios.
@@ -34,8 +36,10 @@ public class RoadPricingOptions {
 
 	/**
 	 * configure an area based toll scheme.
+	 *
+	 * @param cacheDir directory to cache the links within the areas in, no caching if null
 	 */
-	void configureAreaTollScheme(Scenario scenario) {
+	void configureAreaTollScheme(Scenario scenario, @Nullable Path cacheDir) {
 
 		RoadPricingSchemeImpl scheme = RoadPricingUtils.addOrGetMutableRoadPricingScheme(scenario);
 
@@ -54,33 +58,40 @@ public class RoadPricingOptions {
 
 		List<SimpleFeature> features = shp.readFeatures();
 
+		// road types, which are tolled within each area. Null means all road types
+		List<List<String>> roadTypes = new ArrayList<>();
+		for (SimpleFeature feat : features) {
+			if (features.size() > 1) {
+				List<String> types = new ArrayList<>(List.of("highway.motorway", "highway.primary", "highway.trunk", "highway.secondary"));
+//				case avenidas principales
+				if (feat.getAttribute("name").toString().equals("avenida-gran-canal") || feat.getAttribute("name").toString().equals("avenida-canal-nacional")) {
+//					add highway tertiary for avenida gran canal and avenida canal nacional
+					types.add("highway.tertiary");
+				}
+				roadTypes.add(types);
+			} else {
+				roadTypes.add(null);
+			}
+		}
+
+		Map<Id<Link>, int[]> inArea = LinkAreaClassifier.classify(scenario.getNetwork(), roadPricingAreaPath,
+			LinkAreaClassifier.getGeometries(features), cacheDir);
+
 		for (Link link : scenario.getNetwork().getLinks().values()) {
 			if (link.getId().toString().contains("pt_")) {
 				continue;
 			}
 
-			Geometry geometry;
-
-			for (SimpleFeature feat : features) {
-				geometry = (Geometry) feat.getDefaultGeometry();
-
-				boolean isInsideArea = MGC.coord2Point(link.getFromNode().getCoord()).within(geometry)
-					&& MGC.coord2Point(link.getToNode().getCoord()).within(geometry);
-
-				boolean isRoadType = true;
-
-				List<String> roadTypes = new ArrayList<>(List.of("highway.motorway", "highway.primary", "highway.trunk", "highway.secondary"));
+			int[] areas = inArea.get(link.getId());
+			if (areas == null) {
+				continue;
+			}
 
-				if (features.size() > 1) {
-//					case avenidas principales
-					if (feat.getAttribute("name").toString().equals("avenida-gran-canal") || feat.getAttribute("name").toString().equals("avenida-canal-nacional")) {
-//						add highway tertiary for avenida gran canal and avenida canal nacional
-						roadTypes.add("highway.tertiary");
-					}
-					isRoadType = roadTypes.stream().anyMatch(link.getAttributes().getAttribute("type").toString()::contains);
-				}
+			for (int i : areas) {
+				List<String> types = roadTypes.get(i);
+				boolean isRoadType = types == null || types.stream().anyMatch(link.getAttributes().getAttribute("type").toString()::contains);
 
-				if (isInsideArea && isRoadType) {
+				if (isRoadType) {
 					RoadPricingUtils.addLink(scheme, link.getId());
 					link.getAttributes().putAttribute("roadPricing", "enabled");
 					break;
@@ -36,6 +36,7 @@ import org.matsim.core.scoring.functions.ScoringParametersForPerson;
 import org.matsim.prepare.*;
 import org.matsim.prepare.network.CreateBikeNetworkFromShp;
 import org.matsim.prepare.network.CreateMexicoCityNetworkFromSumo;
+import org.matsim.prepare.network.NetworkCache;
 import org.matsim.prepare.network.PrepareNetwork;
 import org.matsim.prepare.opt.RunCountOptimization;
 import org.matsim.prepare.opt.SelectPlansFromIndex;
@@ -49,7 +50,9 @@ import picocli.CommandLine;
 import playground.vsp.scoring.IncomeDependentUtilityOfMoneyPersonScoringParameters;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -84,6 +87,9 @@ public class RunMexicoCityScenario extends MATSimApplication {
 	@CommandLine.Option(names = "--random-seed", defaultValue = "4711", description = "setting random seed for the simulation. Can be used to compare several runs with the same config.")
 	private long randomSeed;
 
+	@CommandLine.Option(names = "--network-cache", description = "Directory to cache the prepared network and the links within the bike and road pricing areas in. Runs with the same inputs and options reuse them instead of preparing them again.")
+	private Path networkCacheDir;
+
 	@CommandLine.ArgGroup(heading = "%nRoadPricing options%n", exclusive = false, multiplicity = "0..1")
 	private final RoadPricingOptions pricingOpt = new RoadPricingOptions();
 
@@ -92,6 +98,22 @@ public class RunMexicoCityScenario extends MATSimApplication {
 
 	public static final String VERSION = "1.x";
 
+	/**
+	 * Avg freight percentage of count stations, see class freight_volume_analysis.R.
+	 */
+	private static final double FREIGHT_PCT = 0.1029;
+
+	/**
+	 * Cache entry of the prepared network, null if caching is disabled.
+	 */
+	@Nullable
+	private NetworkCache networkCache;
+
+	/**
+	 * Whether the network is read from the cache and is already prepared.
+	 */
+	private boolean networkCached;
+
 	public RunMexicoCityScenario(@Nullable Config config) {
 		super(config);
 	}
@@ -211,19 +233,26 @@ public class RunMexicoCityScenario extends MATSimApplication {
 			sw.defaultParams().set(MexicoCityUtils.ROAD_PRICING_AREA, RoadPricingOptions.roadPricingAreaPath.toString());
 		}
 
+		if (MexicoCityUtils.isDefined(networkCacheDir)) {
+			networkCache = createNetworkCache(config);
+			networkCached = networkCache != null && networkCache.exists();
+
+//			read the prepared network instead of the input network, so that the network is only parsed once
+			if (networkCached) {
+				log.info("Reusing prepared network from cache {}", networkCache.getFile());
+				config.network().setInputFile(networkCache.getFile().toAbsolutePath().toString());
+			}
+		}
+
 		return config;
 	}
 
 	@Override
 	protected void prepareScenario(Scenario scenario) {
 
-		if (MexicoCityUtils.isDefined(RoadPricingOptions.roadPricingAreaPath)) {
-			pricingOpt.configureAreaTollScheme(scenario);
-		}
-
 		if (MexicoCityUtils.isDefined(incomeAreaPath)) {
 			log.info("Person Income attributes will be assigned based on shp file {}.", incomeAreaPath);
-			PrepareIncome.assignIncomeAttr(new ShpOptions(incomeAreaPath, null, null), scenario.getPopulation());
+			PrepareIncome.assignIncomeAttr(new ShpOptions(incomeAreaPath, null, null), scenario.getPopulation(), randomSeed);
 		} else {
 			log.warn("No income attributes shp file was defined. Please make sure every agent of your population already has an income attribute." +
 				"Due to the usage of income dependent scoring the simulation will fail if no income attributes are present.");
@@ -231,9 +260,47 @@ public class RunMexicoCityScenario extends MATSimApplication {
 
 		ChangeModeNames.changeNames(scenario.getPopulation());
 
+		if (!networkCached) {
+			prepareNetwork(scenario, bikeOnNetwork ? getBikeAreaPath(scenario.getConfig()) : null);
+
+			if (networkCache != null) {
+				try {
+					networkCache.write(scenario.getNetwork());
+				} catch (IOException e) {
+					log.warn("Could not cache prepared network in {}", networkCache.getFile(), e);
+				}
+			}
+		}
+
+//		road pricing is applied after the network has been cached, the cached network does not depend on it
+		if (MexicoCityUtils.isDefined(RoadPricingOptions.roadPricingAreaPath)) {
+			pricingOpt.configureAreaTollScheme(scenario, networkCacheDir);
+		}
+
+		if (bikeOnNetwork) {
+//			add bike vehicle type if missing
+			Id<VehicleType> bikeTypeId = Id.create(TransportMode.bike, VehicleType.class);
+
+			if (!scenario.getVehicles().getVehicleTypes().containsKey(bikeTypeId)) {
+				VehicleType bikeType = VehicleUtils.createVehicleType(bikeTypeId);
+
+				bikeType.setMaximumVelocity(15 / 3.6);
+				bikeType.setLength(2.);
+				bikeType.setPcuEquivalents(0.2);
+				bikeType.setNetworkMode(TransportMode.bike);
+				bikeType.setDescription("This vehicle type is set in case of bike simulation on the network. Per default, bike is simulated as a teleported mode. Max. bike velocity set to 15km/h");
+
+				scenario.getVehicles().addVehicleType(bikeType);
+			}
+		}
+	}
+
+	/**
+	 * Apply all changes to the network, which do not depend on the population or road pricing.
+	 * The result can be cached with --network-cache, {@link NetworkCache#VERSION} needs to be increased whenever this preparation changes.
+	 */
+	private void prepareNetwork(Scenario scenario, @Nullable Path bikeArea) {
 //		reduce link capacities to compensate missing freight traffic in this scenario
-//		avg freight percentage of count stations: 0.1029 -> see class freight_volume_analysis.R
-		double freightPct = 0.1029;
 		for (Link link : scenario.getNetwork().getLinks().values()) {
 			if (link.getAllowedModes().contains(TransportMode.car)) {
 				if (link.getAttributes().getAttribute("type").toString().contains("highway.residential") ||
@@ -244,48 +311,53 @@ public class RunMexicoCityScenario extends MATSimApplication {
 					link.getAttributes().getAttribute("type").toString().contains("trunk") ||
 					link.getAttributes().getAttribute("type").toString().contains("motorway")) {
 //					As the available count stations are located on the above roadTypes, for trunk, primary and motorway road types the full 10.29% are applied
-					link.setCapacity(link.getCapacity() - link.getCapacity() * freightPct);
+					link.setCapacity(link.getCapacity() - link.getCapacity() * FREIGHT_PCT);
 				} else {
 //					for all other road types it is assumed that freightPct might not be as high as on the above roadtypes
-					link.setCapacity(link.getCapacity() - link.getCapacity() * (freightPct - 0.03));
+					link.setCapacity(link.getCapacity() - link.getCapacity() * (FREIGHT_PCT - 0.03));
 				}
 			}
 		}
 
-		if (bikeOnNetwork) {
-
-			String bikeAreaPath = "";
-			try {
-				bikeAreaPath = Path.of(scenario.getConfig().getContext().toURI()).getParent().toString();
-
-				if (!Path.of(scenario.getConfig().getContext().toURI()).getParent().toString().endsWith("/")) {
-					bikeAreaPath += "/";
-				}
-			} catch (URISyntaxException e) {
-				throw new NoSuchElementException(e);
-			}
-			PrepareNetwork.prepareBikeOnNetwork(scenario.getNetwork(), new ShpOptions(Path.of(bikeAreaPath + "area/area.shp"), null, null));
+		if (bikeArea != null) {
+//			the links within the bike area are cached as well, if caching is enabled
+			PrepareNetwork.prepareBikeOnNetwork(scenario.getNetwork(), new ShpOptions(bikeArea, null, null), networkCacheDir);
 
 //			remove 1 car lane for each link with more than 1 lane. Repurpose the lane to bike. Exception: motorways
 			if (repurposeLanes) {
 				log.info("Scenario for repurposing car lanes to bike lanes is enabled. See class PrepareNetwork for more information.");
 				PrepareNetwork.prepareRepurposeCarLanesNetwork(scenario.getNetwork());
 			}
+		}
+	}
 
-//			add bike vehicle type if missing
-			Id<VehicleType> bikeTypeId = Id.create(TransportMode.bike, VehicleType.class);
-
-			if (!scenario.getVehicles().getVehicleTypes().containsKey(bikeTypeId)) {
-				VehicleType bikeType = VehicleUtils.createVehicleType(bikeTypeId);
-
-				bikeType.setMaximumVelocity(15 / 3.6);
-				bikeType.setLength(2.);
-				bikeType.setPcuEquivalents(0.2);
-				bikeType.setNetworkMode(TransportMode.bike);
-				bikeType.setDescription("This vehicle type is set in case of bike simulation on the network. Per default, bike is simulated as a teleported mode. Max. bike velocity set to 15km/h");
+	/**
+	 * Create the cache entry for the prepared network, or null if the input network is not a local file.
+	 */
+	@Nullable
+	private NetworkCache createNetworkCache(Config config) {
+		try {
+			URL url = config.network().getInputFileURL(config.getContext());
+			if (url == null || !"file".equals(url.getProtocol()))
+				return null;
+
+			List<Path> files = new ArrayList<>();
+			files.add(Path.of(url.toURI()));
+			if (bikeOnNetwork)
+				files.add(getBikeAreaPath(config));
+
+			return NetworkCache.of(networkCacheDir, files, FREIGHT_PCT, bikeOnNetwork, repurposeLanes);
+		} catch (IOException | URISyntaxException e) {
+			log.warn("Prepared network can not be cached", e);
+			return null;
+		}
+	}
 
-				scenario.getVehicles().addVehicleType(bikeType);
-			}
+	private static Path getBikeAreaPath(Config config) {
+		try {
+			return Path.of(config.getContext().toURI()).getParent().resolve("area/area.shp");
+		} catch (URISyntaxException e) {
+			throw new NoSuchElementException(e);
 		}
 	}
 
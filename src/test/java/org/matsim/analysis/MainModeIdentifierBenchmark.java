@@ -0,0 +1,83 @@
+package org.matsim.analysis;
+
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.prepare.MexicoCityUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of {@link MexicoCityMainModeIdentifier} on a mix of trips, as they are produced by the router.
+ * Run with the main method of this class, e.g. from the IDE, after the test sources have been compiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MainModeIdentifierBenchmark {
+
+	private static final int TRIPS = 1024;
+
+	/**
+	 * Leg modes of typical trips. Pt trips contain access, egress and transfer walks.
+	 */
+	private static final String[][] TRIP_TYPES = {
+		{TransportMode.walk},
+		{TransportMode.walk, TransportMode.car, TransportMode.walk},
+		{TransportMode.walk, TransportMode.bike, TransportMode.walk},
+		{TransportMode.walk, TransportMode.pt, TransportMode.walk},
+		{TransportMode.walk, TransportMode.pt, TransportMode.transit_walk, TransportMode.pt, TransportMode.walk},
+		{TransportMode.non_network_walk, TransportMode.walk, MexicoCityUtils.TAXIBUS, TransportMode.walk, TransportMode.non_network_walk},
+		{TransportMode.walk, MexicoCityUtils.TAXIBUS, TransportMode.transit_walk, TransportMode.pt, TransportMode.transit_walk, TransportMode.pt, TransportMode.walk}
+	};
+
+	private MexicoCityMainModeIdentifier identifier;
+	private List<List<PlanElement>> trips;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(MainModeIdentifierBenchmark.class.getSimpleName())
+			.build()).run();
+	}
+
+	/**
+	 * Create a random mix of trips.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		identifier = new MexicoCityMainModeIdentifier();
+		trips = new ArrayList<>(TRIPS);
+
+		SplittableRandom rnd = new SplittableRandom(0);
+		for (int i = 0; i < TRIPS; i++) {
+			List<PlanElement> trip = new ArrayList<>();
+			for (String mode : TRIP_TYPES[rnd.nextInt(TRIP_TYPES.length)]) {
+				trip.add(PopulationUtils.createLeg(mode));
+			}
+			trips.add(trip);
+		}
+	}
+
+	/**
+	 * Identify the main mode of all trips.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TRIPS)
+	public void identifyMainMode(Blackhole bh) {
+		for (int i = 0; i < TRIPS; i++) {
+			bh.consume(identifier.identifyMainMode(trips.get(i)));
+		}
+	}
+
+}
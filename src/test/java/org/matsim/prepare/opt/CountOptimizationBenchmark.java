@@ -0,0 +1,197 @@
+package org.matsim.prepare.opt;
+
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the count optimization components on synthetic problems, see {@link SyntheticProblems}.
+ * Run with the main method of this class, e.g. from the IDE, after the test sources have been compiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CountOptimizationBenchmark {
+
+	private static final int OPS = 1024;
+
+	// Parameters need to be public to be set by JMH
+
+	@Param({"10000", "100000"})
+	public int persons;
+
+	@Param({"5"})
+	public int maxK;
+
+	@Param({"500"})
+	public int links;
+
+	@Param({"10"})
+	public int linksPerPlan;
+
+	@Param({"ABS_ERROR", "LOG_ERROR", "SYMMETRIC_PERCENTAGE_ERROR"})
+	public String metric;
+
+	private RunCountOptimization.ErrorMetric errorMetric;
+	private PlanAssignmentProblem problem;
+	private ScoreCalculator calc;
+	private ScoreDirector<PlanAssignmentProblem> director;
+	private SplittableRandom rnd;
+
+	private int[] count;
+	private int[] old;
+	private int[] update;
+
+	private int next;
+
+	private org.apache.logging.log4j.Level logLevel;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(CountOptimizationBenchmark.class.getSimpleName())
+			.build()).run();
+	}
+
+	/**
+	 * Create the problem and the score calculator.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		// the pre optimization logs its progress, which should not be part of the measurement
+		logLevel = RunCountOptimization.log.getLevel();
+		Configurator.setLevel(RunCountOptimization.log.getName(), org.apache.logging.log4j.Level.WARN);
+
+		errorMetric = RunCountOptimization.ErrorMetric.valueOf(metric);
+		problem = SyntheticProblems.create(persons, maxK, links, linksPerPlan, 100, errorMetric, 0);
+
+		calc = new ScoreCalculator();
+		calc.resetWorkingSolution(problem);
+		director = scoreDirector(problem, calc);
+		rnd = new SplittableRandom(0);
+
+		count = new int[OPS];
+		old = new int[OPS];
+		update = new int[OPS];
+		for (int i = 0; i < OPS; i++) {
+			count[i] = rnd.nextInt(5000);
+			old[i] = rnd.nextInt(5000);
+			update[i] = old[i] + (rnd.nextBoolean() ? 100 : -100);
+		}
+	}
+
+	/**
+	 * Restore the log level.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Configurator.setLevel(RunCountOptimization.log.getName(), logLevel);
+	}
+
+	/**
+	 * Error change of a single count update.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public double diffChange() {
+		double sum = 0;
+		for (int i = 0; i < OPS; i++) {
+			sum += ScoreCalculator.diffChange(errorMetric, count[i], old[i], update[i]);
+		}
+		return sum;
+	}
+
+	/**
+	 * Incremental score update when a person switches the plan.
+	 */
+	@Benchmark
+	public int variableChanged() {
+		List<PlanPerson> list = problem.getPersons();
+		PlanPerson person = list.get(next++ % list.size());
+
+		calc.beforeVariableChanged(person, "k");
+		person.setK(rnd.nextInt(maxK));
+		calc.afterVariableChanged(person, "k");
+
+		return person.getK();
+	}
+
+	/**
+	 * Full score calculation.
+	 */
+	@Benchmark
+	public Object resetWorkingSolution() {
+		calc.resetWorkingSolution(problem);
+		return calc.calculateScore();
+	}
+
+	/**
+	 * Selection of large shuffle moves, without applying them.
+	 */
+	@Benchmark
+	public void moveSelection(Blackhole bh) {
+		Iterator<LargeChangeMove> it = new LargeShuffleMoveSelector()
+			.createRandomMoveIterator(director, new Random(next++));
+
+		for (int i = 0; i < OPS && it.hasNext(); i++) {
+			bh.consume(it.next());
+		}
+	}
+
+	/**
+	 * Selection and application of a large shuffle move, including the incremental score updates.
+	 */
+	@Benchmark
+	public Object doMove() {
+		Iterator<LargeChangeMove> it = new LargeShuffleMoveSelector()
+			.createRandomMoveIterator(director, new Random(next++));
+
+		it.next().doMove(director);
+		return calc.calculateScore();
+	}
+
+	/**
+	 * Pre optimization with change exp beta.
+	 */
+	@Benchmark
+	public Object iterate() {
+		problem.iterate(10, 0.5, 1, 0.01);
+		return problem.getScore();
+	}
+
+	/**
+	 * Minimal score director, which only provides the working solution and forwards variable changes to the score calculator.
+	 */
+	@SuppressWarnings("unchecked")
+	private static ScoreDirector<PlanAssignmentProblem> scoreDirector(PlanAssignmentProblem problem, ScoreCalculator calc) {
+		return (ScoreDirector<PlanAssignmentProblem>) Proxy.newProxyInstance(ScoreDirector.class.getClassLoader(), new Class<?>[]{ScoreDirector.class},
+			(proxy, method, args) -> switch (method.getName()) {
+				case "getWorkingSolution" -> problem;
+				case "lookUpWorkingObject", "lookUpWorkingObjectOrReturnNull" -> args[0];
+				case "beforeVariableChanged" -> {
+					calc.beforeVariableChanged(args[0], (String) args[1]);
+					yield null;
+				}
+				case "afterVariableChanged" -> {
+					calc.afterVariableChanged(args[0], (String) args[1]);
+					yield null;
+				}
+				case "triggerVariableListeners" -> null;
+				default -> throw new UnsupportedOperationException(method.getName());
+			});
+	}
+
+}
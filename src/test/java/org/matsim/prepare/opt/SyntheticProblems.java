@@ -0,0 +1,81 @@
+package org.matsim.prepare.opt;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import org.matsim.api.core.v01.Id;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of synthetic count optimization problems, which resemble the ones created by {@link RunCountOptimization}.
+ */
+final class SyntheticProblems {
+
+	/**
+	 * Share of persons which have a no-op plan inserted at the front, like commercial traffic.
+	 */
+	private static final double OFFSET_SHARE = 0.1;
+
+	/**
+	 * Maximum deviation of the counts from a random "true" plan selection.
+	 */
+	private static final double COUNT_NOISE = 0.2;
+
+	private SyntheticProblems() {
+	}
+
+	/**
+	 * Create a problem. The counts are derived from a random plan selection with some noise, so that a good solution exists.
+	 *
+	 * @param persons      number of persons
+	 * @param maxK         number of plans per person
+	 * @param links        number of counted links (times time steps)
+	 * @param linksPerPlan maximum number of counted links a plan passes
+	 * @param scale        count increment of each passed link, usually 1 / sample size
+	 */
+	static PlanAssignmentProblem create(int persons, int maxK, int links, int linksPerPlan, int scale,
+										RunCountOptimization.ErrorMetric metric, long seed) {
+
+		SplittableRandom rnd = new SplittableRandom(seed);
+
+		List<PlanPerson> list = new ArrayList<>(persons);
+		double[] truth = new double[links];
+
+		for (int i = 0; i < persons; i++) {
+
+			int offset = rnd.nextDouble() < OFFSET_SHARE ? 1 : 0;
+
+			Int2IntMap[] plans = new Int2IntMap[maxK];
+			for (int k = 0; k < maxK; k++) {
+				if (k < offset) {
+					plans[k] = PlanPerson.NOOP_PLAN;
+					continue;
+				}
+
+				Int2IntMap plan = new Int2IntOpenHashMap();
+				int n = rnd.nextInt(linksPerPlan + 1);
+				for (int j = 0; j < n; j++) {
+					plan.merge(rnd.nextInt(links), scale, Integer::sum);
+				}
+
+				plans[k] = plan.isEmpty() ? PlanPerson.NOOP_PLAN : plan;
+			}
+
+			for (Int2IntMap.Entry e : plans[rnd.nextInt(maxK)].int2IntEntrySet()) {
+				truth[e.getIntKey()] += e.getIntValue();
+			}
+
+			list.add(new PlanPerson(Id.createPersonId("p" + i), offset, plans));
+		}
+
+		int[] counts = new int[links];
+		for (int j = 0; j < links; j++) {
+			counts[j] = (int) Math.round(truth[j] * (1 + rnd.nextDouble(-COUNT_NOISE, COUNT_NOISE)));
+		}
+
+		return new PlanAssignmentProblem(maxK, metric, list, counts);
+	}
+
+}
@@ -0,0 +1,104 @@
+package org.matsim.prepare.population;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.*;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BinaryPopulationTest {
+
+	@TempDir
+	Path dir;
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory f = population.getFactory();
+		population.getAttributes().putAttribute("coordinateReferenceSystem", "EPSG:4485");
+
+		for (int i = 0; i < 3; i++) {
+			Person person = f.createPerson(Id.createPersonId("p" + i));
+			person.getAttributes().putAttribute("age", i * 20);
+			person.getAttributes().putAttribute("income", 1000.5 * i);
+			person.getAttributes().putAttribute("employed", i % 2 == 0);
+			person.getAttributes().putAttribute("home", new Coord(100 * i, 200 * i));
+			PopulationUtils.putSubpopulation(person, "person");
+
+			for (int j = 0; j < 2; j++) {
+				Plan plan = f.createPlan();
+				if (j == 0)
+					plan.setScore(-12.5 * i);
+
+				Activity home = f.createActivityFromCoord("home_86400", new Coord(100 * i, 200 * i));
+				home.setEndTime(8 * 3600 + i * 60);
+				home.getAttributes().putAttribute("n", (long) i);
+				plan.addActivity(home);
+
+				Leg leg = f.createLeg(TransportMode.car);
+				leg.setRoutingMode(TransportMode.car);
+				leg.setDepartureTime(8 * 3600);
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"), List.of(Id.createLinkId("2"), Id.createLinkId("3")), Id.createLinkId("4"));
+				route.setDistance(1234.5);
+				route.setTravelTime(600);
+				route.setVehicleId(Id.create("v" + i, Vehicle.class));
+				leg.setRoute(route);
+				plan.addLeg(leg);
+
+				Activity work = f.createActivityFromLinkId("work_28800", Id.create("4", Link.class));
+				work.setFacilityId(Id.create("f" + i, ActivityFacility.class));
+				work.setCoord(new Coord(500, 600, 10));
+				work.setMaximumDuration(8 * 3600);
+				plan.addActivity(work);
+
+				Leg walk = f.createLeg(TransportMode.walk);
+				walk.setRoute(RouteUtils.createGenericRouteImpl(Id.createLinkId("4"), Id.createLinkId("1")));
+				walk.getRoute().setDistance(800);
+				plan.addLeg(walk);
+
+				plan.addActivity(f.createActivityFromCoord("home_86400", new Coord(100 * i, 200 * i)));
+				person.addPlan(plan);
+			}
+
+			person.setSelectedPlan(person.getPlans().get(i % 2));
+			population.addPerson(person);
+		}
+
+		return population;
+	}
+
+	@Test
+	void roundTrip() throws IOException {
+
+		Population population = createPopulation();
+
+		Path binary = dir.resolve("population.bpop.gz");
+		new BinaryPopulationWriter(population).write(binary);
+
+		Population read = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		new BinaryPopulationReader(read).read(binary);
+
+		Path expected = dir.resolve("expected.xml");
+		Path actual = dir.resolve("actual.xml");
+		PopulationUtils.writePopulation(population, expected.toString());
+		PopulationUtils.writePopulation(read, actual.toString());
+
+		assertThat(read.getPersons()).hasSize(3);
+		assertThat(Files.readString(actual))
+			.isEqualTo(Files.readString(expected));
+	}
+}